@@ -0,0 +1,99 @@
+package org.truecaller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.truecaller.prefixmatcher.AhoCorasickPrefixMatcher;
+import org.truecaller.prefixmatcher.MatchSink;
+import org.truecaller.prefixmatcher.TriePrefixMatcher;
+
+import java.util.List;
+
+/**
+ * Measures AhoCorasickPrefixMatcher on its own, against a Trie queried at every offset of the same texts.
+ * Its goto table holds one int per state and alphabet character, so at a million long-tail prefixes it
+ * needs gigabytes; the prefix counts stay at sizes the table fits comfortably in a default heap, which is
+ * why it is kept out of the MatcherApproach sweep in PrefixMatcherBenchmark.
+ */
+@State(Scope.Benchmark)
+public class AhoCorasickBenchmark {
+
+    private static final int TEXT_COUNT = 1024;
+    // Inputs joined into each scanned text, so every text mixes hits and misses at varying offsets.
+    private static final int INPUTS_PER_TEXT = 8;
+
+    @Param({"64", "10000"})
+    private int prefixCount;
+
+    @Param({"SHORT", "MIXED", "LONG_TAIL"})
+    private BenchmarkData.LengthDistribution lengthDistribution;
+
+    @Param({"DIGITS", "ASCII", "UNICODE"})
+    private BenchmarkData.Alphabet alphabet;
+
+    @Param({"0.3", "0.9"})
+    private double hitRatio;
+
+    private AhoCorasickPrefixMatcher automaton;
+    private TriePrefixMatcher trie;
+    private String[] inputs;
+    private String[] texts;
+
+    @Setup
+    public void setup() {
+        List<String> prefixes = BenchmarkData.prefixes(prefixCount, lengthDistribution, alphabet);
+        automaton = new AhoCorasickPrefixMatcher();
+        automaton.loadPrefixes(prefixes);
+        trie = new TriePrefixMatcher();
+        trie.loadPrefixes(prefixes);
+        inputs = BenchmarkData.inputs(prefixes, alphabet, hitRatio, TEXT_COUNT);
+        String[] parts = BenchmarkData.inputs(prefixes, alphabet, hitRatio, TEXT_COUNT * INPUTS_PER_TEXT);
+        texts = new String[TEXT_COUNT];
+        for (int i = 0; i < TEXT_COUNT; i++) {
+            texts[i] = String.join(" ", List.of(parts).subList(i * INPUTS_PER_TEXT, (i + 1) * INPUTS_PER_TEXT));
+        }
+    }
+
+    /**
+     * Per-thread position in the input arrays and match counter, so concurrent benchmark threads share no state.
+     */
+    @State(Scope.Thread)
+    public static class Cursor implements MatchSink {
+        private int next;
+        private int matches;
+
+        String nextOf(String[] values) {
+            String value = values[next];
+            next = (next + 1) & (TEXT_COUNT - 1);
+            return value;
+        }
+
+        @Override
+        public void onMatch(int start, int length) {
+            matches++;
+        }
+    }
+
+    @Benchmark
+    public int findLongestMatchLength(Cursor cursor) {
+        return automaton.findLongestMatchLength(cursor.nextOf(inputs));
+    }
+
+    @Benchmark
+    public int scan(Cursor cursor) {
+        automaton.scan(cursor.nextOf(texts), cursor);
+        return cursor.matches;
+    }
+
+    @Benchmark
+    public int scanTrieAtEveryOffset(Cursor cursor) {
+        String text = cursor.nextOf(texts);
+        for (int offset = 0; offset < text.length(); offset++) {
+            int start = offset;
+            trie.findAllMatchingPrefixes(text, offset, text.length() - offset, length -> cursor.onMatch(start, length));
+        }
+        return cursor.matches;
+    }
+}
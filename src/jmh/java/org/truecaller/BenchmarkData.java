@@ -0,0 +1,112 @@
+package org.truecaller;
+
+import org.truecaller.prefixmatcher.PrefixMatcher;
+import org.truecaller.prefixmatcher.TriePrefixMatcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic prefix and input generator shared by the JMH benchmarks.
+ */
+public final class BenchmarkData {
+
+    // Never part of any alphabet, so an input starting with it cannot match.
+    private static final char MISS_MARKER = '\u0001';
+    private static final long SEED = 0x5EED;
+
+    /**
+     * Character sets the prefixes and inputs are drawn from.
+     */
+    public enum Alphabet {
+        DIGITS("0123456789"),
+        ASCII("ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-_"),
+        UNICODE("0123456789abcdefабвгдежзийклмноп日本語中文한국어ÄÖÜßéèêñ");
+
+        private final String chars;
+
+        Alphabet(String chars) {
+            this.chars = chars;
+        }
+
+        char pick(Random random) {
+            return chars.charAt(random.nextInt(chars.length()));
+        }
+    }
+
+    /**
+     * Shapes of the prefix length distribution.
+     */
+    public enum LengthDistribution {
+        // Telecom-style prefixes of 1 to 8 characters.
+        SHORT,
+        // Uniform lengths from 1 to 24 characters.
+        MIXED,
+        // A few shared heads followed by long unique tails, like routing keys.
+        LONG_TAIL
+    }
+
+    private BenchmarkData() {
+    }
+
+    static List<String> prefixes(int count, LengthDistribution distribution, Alphabet alphabet) {
+        Random random = new Random(SEED);
+        List<String> heads = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            heads.add(randomString(random, alphabet, 8));
+        }
+
+        Set<String> prefixes = new LinkedHashSet<>();
+        // Cap the attempts: short distributions over small alphabets run out of distinct values.
+        for (int attempt = 0; prefixes.size() < count && attempt < count * 20; attempt++) {
+            prefixes.add(switch (distribution) {
+                case SHORT -> randomString(random, alphabet, 1 + random.nextInt(8));
+                case MIXED -> randomString(random, alphabet, 1 + random.nextInt(24));
+                case LONG_TAIL -> heads.get(random.nextInt(heads.size()))
+                        + randomString(random, alphabet, 16 + random.nextInt(24));
+            });
+        }
+        return new ArrayList<>(prefixes);
+    }
+
+    /**
+     * Builds inputs of which roughly hitRatio match some prefix and the rest match none.
+     */
+    static String[] inputs(List<String> prefixes, Alphabet alphabet, double hitRatio, int count) {
+        Random random = new Random(SEED + 1);
+        PrefixMatcher reference = new TriePrefixMatcher();
+        reference.loadPrefixes(prefixes);
+
+        String[] inputs = new String[count];
+        for (int i = 0; i < count; i++) {
+            if (!prefixes.isEmpty() && random.nextDouble() < hitRatio) {
+                inputs[i] = prefixes.get(random.nextInt(prefixes.size())) + randomString(random, alphabet, 8);
+            } else {
+                inputs[i] = miss(reference, random, alphabet);
+            }
+        }
+        return inputs;
+    }
+
+    private static String miss(PrefixMatcher reference, Random random, Alphabet alphabet) {
+        // Prefer inputs that walk part of the structure before failing; fall back to a guaranteed miss.
+        for (int attempt = 0; attempt < 10; attempt++) {
+            String candidate = randomString(random, alphabet, 16);
+            if (reference.findLongestMatchLength(candidate) == 0) {
+                return candidate;
+            }
+        }
+        return MISS_MARKER + randomString(random, alphabet, 15);
+    }
+
+    private static String randomString(Random random, Alphabet alphabet, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.pick(random));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,67 @@
+package org.truecaller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.truecaller.execution.ExecutionMode;
+import org.truecaller.models.MatchResults;
+import org.truecaller.prefixmatcher.MatcherApproach;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures matching through LongestPrefixMatchService for each execution mode, including executor overhead.
+ * The number of concurrent callers is controlled with -PjmhThreads; with many callers this shows the
+ * queueing behaviour of each mode when the service is embedded in request handlers.
+ */
+@State(Scope.Benchmark)
+public class LongestPrefixMatchServiceBenchmark {
+
+    @Param({"TRIE", "DOUBLE_ARRAY", "RADIX"})
+    private MatcherApproach approach;
+
+    @Param({"100000"})
+    private int prefixCount;
+
+    @Param({"1000", "100000"})
+    private int batchSize;
+
+    @Param({"DIGITS", "ASCII"})
+    private BenchmarkData.Alphabet alphabet;
+
+    @Param({"0.3", "0.9"})
+    private double hitRatio;
+
+    @Param({"CALLER_RUNS", "WORK_STEALING", "VIRTUAL_THREADS"})
+    private ExecutionMode executionMode;
+
+    private LongestPrefixMatchService service;
+    private List<String> batch;
+
+    @Setup
+    public void setup() {
+        List<String> prefixes = BenchmarkData.prefixes(prefixCount, BenchmarkData.LengthDistribution.SHORT, alphabet);
+        service = new LongestPrefixMatchService(prefixes, approach, executionMode);
+        batch = Arrays.asList(BenchmarkData.inputs(prefixes, alphabet, hitRatio, batchSize));
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public Map<String, String> matchConcurrentStrings() {
+        return service.matchConcurrentStrings(batch);
+    }
+
+    @Benchmark
+    public MatchResults matchBatch() {
+        return service.matchBatch(batch);
+    }
+}
@@ -0,0 +1,89 @@
+package org.truecaller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.truecaller.prefixmatcher.MatcherApproach;
+import org.truecaller.prefixmatcher.PrefixMatcher;
+
+import java.util.List;
+
+/**
+ * Measures lookups and cold loads for every PrefixMatcher implementation except two kept out of the sweep:
+ * Aho-Corasick, whose goto table would not fit in memory at a million long-tail prefixes (AhoCorasickBenchmark
+ * covers it at bounded sizes), and the linear scan, which costs O(n) per lookup and is only ever chosen for
+ * small sets (SmallPrefixSetBenchmark covers it).
+ * Run with the gc profiler (configured in build.gradle) to get gc.alloc.rate.norm per operation.
+ */
+@State(Scope.Benchmark)
+public class PrefixMatcherBenchmark {
+
+    private static final int INPUT_COUNT = 4096;
+
+    @Param({"TRIE", "DOUBLE_ARRAY", "RADIX", "OFF_HEAP", "DAWG"})
+    private MatcherApproach approach;
+
+    @Param({"64", "10000", "1000000"})
+    private int prefixCount;
+
+    @Param({"SHORT", "MIXED", "LONG_TAIL"})
+    private BenchmarkData.LengthDistribution lengthDistribution;
+
+    @Param({"DIGITS", "ASCII", "UNICODE"})
+    private BenchmarkData.Alphabet alphabet;
+
+    @Param({"0.3", "0.9"})
+    private double hitRatio;
+
+    private List<String> prefixes;
+    private PrefixMatcher matcher;
+    private String[] inputs;
+
+    @Setup
+    public void setup() {
+        prefixes = BenchmarkData.prefixes(prefixCount, lengthDistribution, alphabet);
+        matcher = LongestPrefixMatchService.createMatcherInstance(approach, prefixes.size());
+        matcher.loadPrefixes(prefixes);
+        inputs = BenchmarkData.inputs(prefixes, alphabet, hitRatio, INPUT_COUNT);
+    }
+
+    @TearDown
+    public void tearDown() {
+        // Drops the OFF_HEAP buffer at the end of the trial, so its memory can be returned before the next one.
+        matcher.close();
+    }
+
+    /**
+     * Per-thread position in the input array, so concurrent benchmark threads do not share a counter.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String nextInput(String[] inputs) {
+            String input = inputs[next];
+            next = (next + 1) & (INPUT_COUNT - 1);
+            return input;
+        }
+    }
+
+    @Benchmark
+    public String findLongestMatchingPrefix(Cursor cursor) {
+        return matcher.findLongestMatchingPrefix(cursor.nextInput(inputs));
+    }
+
+    @Benchmark
+    public int findLongestMatchLength(Cursor cursor) {
+        return matcher.findLongestMatchLength(cursor.nextInput(inputs));
+    }
+
+    @Benchmark
+    public PrefixMatcher loadPrefixes() {
+        PrefixMatcher fresh = LongestPrefixMatchService.createMatcherInstance(approach, prefixes.size());
+        fresh.loadPrefixes(prefixes);
+        return fresh;
+    }
+}
@@ -0,0 +1,66 @@
+package org.truecaller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.truecaller.prefixmatcher.HashByLengthPrefixMatcher;
+import org.truecaller.prefixmatcher.MatcherApproach;
+import org.truecaller.prefixmatcher.PrefixMatcher;
+
+import java.util.List;
+
+/**
+ * Compares HashByLengthPrefixMatcher with the Trie engines on prefixes of 1 to 8 characters, the only
+ * shape it accepts, so it is kept out of the MatcherApproach sweep in PrefixMatcherBenchmark.
+ */
+@State(Scope.Benchmark)
+public class ShortPrefixBenchmark {
+
+    private static final int INPUT_COUNT = 4096;
+
+    @Param({"HASH_BY_LENGTH", "TRIE", "DOUBLE_ARRAY"})
+    private String engine;
+
+    @Param({"10000", "1000000"})
+    private int prefixCount;
+
+    @Param({"DIGITS", "ASCII"})
+    private BenchmarkData.Alphabet alphabet;
+
+    @Param({"0.3", "0.9"})
+    private double hitRatio;
+
+    private PrefixMatcher matcher;
+    private String[] inputs;
+
+    @Setup
+    public void setup() {
+        List<String> prefixes = BenchmarkData.prefixes(prefixCount, BenchmarkData.LengthDistribution.SHORT, alphabet);
+        matcher = engine.equals("HASH_BY_LENGTH")
+                ? new HashByLengthPrefixMatcher()
+                : LongestPrefixMatchService.createMatcherInstance(MatcherApproach.valueOf(engine), prefixes.size());
+        matcher.loadPrefixes(prefixes);
+        inputs = BenchmarkData.inputs(prefixes, alphabet, hitRatio, INPUT_COUNT);
+    }
+
+    /**
+     * Per-thread position in the input array, so concurrent benchmark threads do not share a counter.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String nextInput(String[] inputs) {
+            String input = inputs[next];
+            next = (next + 1) & (INPUT_COUNT - 1);
+            return input;
+        }
+    }
+
+    @Benchmark
+    public int findLongestMatchLength(Cursor cursor) {
+        return matcher.findLongestMatchLength(cursor.nextInput(inputs));
+    }
+}
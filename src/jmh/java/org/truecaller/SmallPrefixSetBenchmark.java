@@ -0,0 +1,67 @@
+package org.truecaller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.truecaller.prefixmatcher.MatcherApproach;
+import org.truecaller.prefixmatcher.PrefixMatcher;
+
+import java.util.List;
+
+/**
+ * Sweeps small prefix sets around the point where AUTO switches from LINEAR_SCAN to TRIE,
+ * which is how LongestPrefixMatchService.LINEAR_SCAN_CROSSOVER is chosen.
+ * Only these two approaches are run: a linear scan at large prefix counts measures nothing new.
+ */
+@State(Scope.Benchmark)
+public class SmallPrefixSetBenchmark {
+
+    private static final int INPUT_COUNT = 4096;
+
+    @Param({"LINEAR_SCAN", "TRIE"})
+    private MatcherApproach approach;
+
+    @Param({"8", "16", "32", "64", "128", "256"})
+    private int prefixCount;
+
+    @Param({"SHORT", "MIXED"})
+    private BenchmarkData.LengthDistribution lengthDistribution;
+
+    @Param({"DIGITS", "ASCII"})
+    private BenchmarkData.Alphabet alphabet;
+
+    @Param({"0.3", "0.9"})
+    private double hitRatio;
+
+    private PrefixMatcher matcher;
+    private String[] inputs;
+
+    @Setup
+    public void setup() {
+        List<String> prefixes = BenchmarkData.prefixes(prefixCount, lengthDistribution, alphabet);
+        matcher = LongestPrefixMatchService.createMatcherInstance(approach, prefixes.size());
+        matcher.loadPrefixes(prefixes);
+        inputs = BenchmarkData.inputs(prefixes, alphabet, hitRatio, INPUT_COUNT);
+    }
+
+    /**
+     * Per-thread position in the input array, so concurrent benchmark threads do not share a counter.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String nextInput(String[] inputs) {
+            String input = inputs[next];
+            next = (next + 1) & (INPUT_COUNT - 1);
+            return input;
+        }
+    }
+
+    @Benchmark
+    public int findLongestMatchLength(Cursor cursor) {
+        return matcher.findLongestMatchLength(cursor.nextInput(inputs));
+    }
+}
@@ -1,11 +1,12 @@
 package org.truecaller;
 
+import org.truecaller.models.MatchResults;
 import org.truecaller.prefixmatcher.MatcherApproach;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Scanner;
+import java.util.stream.IntStream;
 
 /**
  * The Command-Line Interface (CLI) application.
@@ -50,16 +51,16 @@ public class LongestPrefixMatchCLI {
             }
 
             System.out.printf("Requesting concurrent match for **%d** strings from service...\n", inputs.size());
-            // Receive a map of Input -> Match
-            Map<String, String> results = service.matchConcurrentStrings(inputs);
+            // Receive results aligned with the inputs, in the order they were typed
+            MatchResults results = service.matchBatch(inputs);
 
             // --- CONCURRENT RESULT FORMATTING ---
             System.out.println("\n--- ⚡ Concurrent Results (Input -> Match) ---");
 
 
             // Determine column widths
-            int maxInputLen = results.keySet().stream().mapToInt(String::length).max().orElse(10);
-            int maxMatchLen = results.values().stream().mapToInt(String::length).max().orElse(10);
+            int maxInputLen = inputs.stream().mapToInt(String::length).max().orElse(10);
+            int maxMatchLen = IntStream.range(0, results.size()).map(results::getMatchLength).max().orElse(10);
 
             int inputWidth = Math.max(20, maxInputLen + 2);
             int matchWidth = Math.max(20, maxMatchLen + 2);
@@ -71,10 +72,10 @@ public class LongestPrefixMatchCLI {
             System.out.println(separator);
 
             // Print results
-            results.forEach((inputStr, matchStr) -> {
-                String formattedMatch = matchStr.isEmpty() ? "<none>" : matchStr;
-                System.out.printf(headerFormat, "'" + inputStr + "'", "'" + formattedMatch + "'");
-            });
+            for (int i = 0; i < results.size(); i++) {
+                String formattedMatch = results.isMatch(i) ? results.getMatch(i) : "<none>";
+                System.out.printf(headerFormat, "'" + results.getInput(i) + "'", "'" + formattedMatch + "'");
+            }
             System.out.println(separator);
 
         } else if (!input.isEmpty()) {
@@ -90,8 +91,8 @@ public class LongestPrefixMatchCLI {
         List<String> samplePrefixes = Arrays.asList("foo", "tru", "true", "apple", "app", "a", "mobile");
 
         // 2. Initialize Service Layer with the DEFAULT approach (Trie)
-        // To use another approach (if implemented)
-        // service = new LongestPrefixMatchService(MatcherApproach.LINEAR_SCAN);
+        // To use another approach
+        // service = new LongestPrefixMatchService(samplePrefixes, MatcherApproach.LINEAR_SCAN);
         service = new LongestPrefixMatchService(samplePrefixes, MatcherApproach.TRIE);
 
         // 3. Start CLI Loop
@@ -1,14 +1,31 @@
 package org.truecaller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 import lombok.extern.slf4j.Slf4j;
+import org.truecaller.execution.CallerRunsExecutorService;
+import org.truecaller.execution.ExecutionMode;
+import org.truecaller.flow.MatchingPublisher;
+import org.truecaller.models.MatchResults;
+import org.truecaller.prefixmatcher.AhoCorasickPrefixMatcher;
+import org.truecaller.prefixmatcher.BloomFilterMetrics;
+import org.truecaller.prefixmatcher.BloomFilteredPrefixMatcher;
+import org.truecaller.prefixmatcher.DawgPrefixMatcher;
+import org.truecaller.prefixmatcher.DoubleArrayTriePrefixMatcher;
+import org.truecaller.prefixmatcher.LinearScanPrefixMatcher;
+import org.truecaller.prefixmatcher.MappedTriePrefixMatcher;
 import org.truecaller.prefixmatcher.MatcherApproach;
+import org.truecaller.prefixmatcher.OffHeapTriePrefixMatcher;
 import org.truecaller.prefixmatcher.PrefixMatcher;
+import org.truecaller.prefixmatcher.RadixTriePrefixMatcher;
 import org.truecaller.prefixmatcher.TriePrefixMatcher;
 
 /**
@@ -17,31 +34,121 @@ import org.truecaller.prefixmatcher.TriePrefixMatcher;
  */
 @Slf4j
 public class LongestPrefixMatchService {
-    private final PrefixMatcher matcher;
+    // Current matcher snapshot. Reloads build a replacement off to the side and swap it in atomically,
+    // so lookups never block and never observe a partially built matcher.
+    private final AtomicReference<PrefixMatcher> matcher;
+    private final MatcherApproach matcherApproach;
+    // Shared by every matcher built across reloads when the Bloom filter is enabled; null otherwise.
+    private final BloomFilterMetrics bloomFilterMetrics;
+    // Serialises writers (reloads and incremental updates) so an update is never applied to a matcher
+    // that is being swapped out. Lookups never take this lock.
+    private final Object updateLock = new Object();
     private final ExecutorService executor;
-    private static final int THREAD_POOL_SIZE = 4;
+    // Number of threads batch work can spread over; drives how many chunks a batch is split into.
+    private final int parallelism;
     private static final int EXECUTOR_SHUTDOWN_TIMEOUT_SECONDS = 5;
+    // Batch chunking: enough chunks per thread to even out skew, but never chunks so small
+    // that task overhead dominates the lookups themselves.
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MIN_CHUNK_SIZE = 256;
+    // Below this many prefixes a packed linear scan outperforms the Trie walk. SmallPrefixSetBenchmark puts
+    // the crossover between 16 and 64 prefixes, depending on prefix lengths and hit ratio.
+    private static final int LINEAR_SCAN_CROSSOVER = 32;
 
     // Design Choice Justification: The Service constructor now performs all necessary initialization
     // (Trie creation and data loading). The CLI only needs to instantiate the Service, making their
     // coupling minimal and the CLI's role strictly I/O.
     public LongestPrefixMatchService(List<String> prefixes, MatcherApproach matcherApproach) {
-        this.matcher = createMatcherInstance(matcherApproach);
-        this.executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+        this(prefixes, matcherApproach, ExecutionMode.WORK_STEALING);
+    }
+
+    public LongestPrefixMatchService(List<String> prefixes, MatcherApproach matcherApproach,
+                                     ExecutionMode executionMode) {
+        this(prefixes, matcherApproach, executionMode, false);
+    }
+
+    /**
+     * @param bloomFilter Whether to put a Bloom filter in front of the matcher, so inputs that match nothing
+     *                    are answered without walking it. Worth enabling when most lookups miss.
+     */
+    public LongestPrefixMatchService(List<String> prefixes, MatcherApproach matcherApproach,
+                                     ExecutionMode executionMode, boolean bloomFilter) {
+        this(matcherApproach, executionMode, bloomFilter);
 
         // Load data immediately upon instantiation
         log.debug("Service initializing: Loading prefixes into the Trie...");
-        this.matcher.loadPrefixes(prefixes);
+        this.matcher.set(buildMatcher(prefixes));
+        log.info("Service initialized and ready.");
+    }
+
+    /**
+     * Starts the service on a snapshot compiled earlier with MappedTriePrefixMatcher.compile. The file is
+     * mapped rather than parsed, so startup builds nothing and the trie takes no heap.
+     * @param snapshotFile A compiled trie snapshot.
+     * @param matcherApproach The approach used by later reload(List) and reload(Path) calls.
+     */
+    public LongestPrefixMatchService(Path snapshotFile, MatcherApproach matcherApproach, ExecutionMode executionMode) {
+        this(matcherApproach, executionMode, false);
+
+        log.debug("Service initializing: Mapping the trie snapshot {}...", snapshotFile);
+        this.matcher.set(MappedTriePrefixMatcher.open(snapshotFile));
         log.info("Service initialized and ready.");
     }
 
+    private LongestPrefixMatchService(MatcherApproach matcherApproach, ExecutionMode executionMode, boolean bloomFilter) {
+        this.matcherApproach = matcherApproach;
+        this.bloomFilterMetrics = bloomFilter ? new BloomFilterMetrics() : null;
+        this.executor = createExecutorInstance(executionMode);
+        this.parallelism = executionMode == ExecutionMode.CALLER_RUNS
+                ? 1
+                : Runtime.getRuntime().availableProcessors();
+        this.matcher = new AtomicReference<>();
+    }
+
+    /**
+     * Creates and fully loads a matcher for the configured approach, without publishing it.
+     */
+    private PrefixMatcher buildMatcher(List<String> prefixes) {
+        PrefixMatcher newMatcher = newMatcher(prefixes.size());
+        newMatcher.loadPrefixes(prefixes);
+        return newMatcher;
+    }
+
+    /**
+     * Creates an empty matcher for the configured approach, behind a Bloom filter if one is enabled.
+     */
+    private PrefixMatcher newMatcher(int prefixCount) {
+        PrefixMatcher newMatcher = createMatcherInstance(matcherApproach, prefixCount);
+        return bloomFilterMetrics == null ? newMatcher : new BloomFilteredPrefixMatcher(newMatcher, bloomFilterMetrics);
+    }
+
+    /**
+     * Helper factory method to create the executor backing the requested execution mode.
+     */
+    private static ExecutorService createExecutorInstance(ExecutionMode executionMode) {
+        return switch (executionMode) {
+            case CALLER_RUNS -> new CallerRunsExecutorService();
+            case WORK_STEALING -> Executors.newWorkStealingPool(Runtime.getRuntime().availableProcessors());
+            case VIRTUAL_THREADS -> Executors.newVirtualThreadPerTaskExecutor();
+        };
+    }
+
     /**
      * Helper factory method to create the appropriate matcher instance.
+     * Package-private so the JMH benchmarks can build matchers without a service around them.
      */
-    private PrefixMatcher createMatcherInstance(MatcherApproach approach) {
+    static PrefixMatcher createMatcherInstance(MatcherApproach approach, int prefixCount) {
         return switch (approach) {
             case TRIE -> new TriePrefixMatcher();
-            default -> new TriePrefixMatcher(); // Default to Trie, for the scope of this project
+            case LINEAR_SCAN -> new LinearScanPrefixMatcher();
+            case DOUBLE_ARRAY -> new DoubleArrayTriePrefixMatcher();
+            case RADIX -> new RadixTriePrefixMatcher();
+            case OFF_HEAP -> new OffHeapTriePrefixMatcher();
+            case DAWG -> new DawgPrefixMatcher();
+            case AHO_CORASICK -> new AhoCorasickPrefixMatcher();
+            case AUTO -> prefixCount < LINEAR_SCAN_CROSSOVER
+                    ? new LinearScanPrefixMatcher()
+                    : new TriePrefixMatcher();
         };
     }
 
@@ -51,7 +158,50 @@ public class LongestPrefixMatchService {
      * @return The longest matching prefix.
      */
     public String matchSingleString(String inputString) {
-        return matcher.findLongestMatchingPrefix(inputString);
+        return matcher.get().findLongestMatchingPrefix(inputString);
+    }
+
+    /**
+     * Finds the longest matching prefix of a region of a larger text, such as a field inside a log line,
+     * without copying the region or creating a String for the match.
+     * @param input The text holding the region, e.g. a StringBuilder or CharBuffer.
+     * @param offset Index of the first character of the region.
+     * @param length Number of characters in the region.
+     * @return The length of the longest matching prefix of the region, or 0 if none matched.
+     */
+    public int matchLength(CharSequence input, int offset, int length) {
+        return matcher.get().findLongestMatchLength(input, offset, length);
+    }
+
+    /**
+     * Finds every loaded prefix of a string in a single walk, for rules that apply to all matching prefixes
+     * rather than only the longest one.
+     * @param inputString The string to match against.
+     * @return The matching prefixes, shortest first, or an empty list if none matched.
+     */
+    public List<String> matchAll(String inputString) {
+        return matcher.get().findAllMatchingPrefixes(inputString);
+    }
+
+    /**
+     * Finds the longest matching prefix for a single input string on the service's executor.
+     * The caller is never blocked; with ExecutionMode.CALLER_RUNS the returned future is already complete.
+     * @param inputString The string to search.
+     * @return A future completed with the longest matching prefix.
+     */
+    public CompletableFuture<String> matchAsync(String inputString) {
+        return CompletableFuture.supplyAsync(() -> matchSingleString(inputString), executor);
+    }
+
+    /**
+     * Streams lookups: every string published upstream is emitted downstream as its longest matching prefix,
+     * in order. Demand flows straight through to the upstream publisher, so a slow subscriber applies
+     * backpressure instead of causing buffering. Each item is matched against the prefix set current at the time.
+     * @param inputStrings The publisher of strings to search.
+     * @return A publisher of the matches, one per input.
+     */
+    public Flow.Publisher<String> matchStream(Flow.Publisher<String> inputStrings) {
+        return new MatchingPublisher(inputStrings, this::matchSingleString);
     }
 
     /**
@@ -60,37 +210,172 @@ public class LongestPrefixMatchService {
      * @return A Map where the key is the input string and the value is the longest matching prefix.
      */
     public Map<String, String> matchConcurrentStrings(List<String> inputStrings) {
-        List<Callable<Map.Entry<String, String>>> tasks = new ArrayList<>();
+        MatchResults results = matchBatch(inputStrings);
+
+        Map<String, String> resultsMap = new HashMap<>((int) (results.size() / 0.75f) + 1);
+        for (int i = 0; i < results.size(); i++) {
+            resultsMap.put(results.getInput(i), results.getMatch(i));
+        }
+        return resultsMap;
+    }
 
-        // 1. Create a Callable task that returns a single Map Entry (Input -> Match)
-        for (String input : inputStrings) {
+    /**
+     * Finds the longest matching prefix for a list of strings concurrently, returning results by position.
+     * Result i belongs to input i, so ordering and duplicate inputs are preserved and callers can zip
+     * results back to their records without a hash lookup.
+     * @param inputStrings The list of strings to search.
+     * @return The match lengths, aligned with the input list.
+     */
+    public MatchResults matchBatch(List<String> inputStrings) {
+        String[] inputs = inputStrings.toArray(new String[0]);
+        // Pin one snapshot so the whole batch is matched against the same prefix set, even across a reload.
+        PrefixMatcher snapshot = matcher.get();
+        int[] matchLengths = new int[inputs.length];
+
+        runInChunks(inputs.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                matchLengths[i] = snapshot.findLongestMatchLength(inputs[i]);
+            }
+        });
+        return new MatchResults(inputs, matchLengths);
+    }
+
+    /**
+     * Splits the index range [0, size) into contiguous chunks, one task per chunk, sized so every pool
+     * thread gets a few chunks. Tasks write straight into caller-owned arrays at the input's position,
+     * so there is no per-input task, future or map entry.
+     */
+    private void runInChunks(int size, ChunkTask chunkTask) {
+        if (size == 0) {
+            return;
+        }
+        int chunkCount = Math.max(1, Math.min(size / MIN_CHUNK_SIZE, parallelism * CHUNKS_PER_THREAD));
+        int chunkSize = (size + chunkCount - 1) / chunkCount;
+        List<Callable<Void>> tasks = new ArrayList<>(chunkCount);
+        for (int start = 0; start < size; start += chunkSize) {
+            int from = start;
+            int to = Math.min(start + chunkSize, size);
             tasks.add(() -> {
-                String match = matcher.findLongestMatchingPrefix(input);
-                // Return a simple Map Entry for the input and its match
-                return Map.entry(input, match);
+                chunkTask.run(from, to);
+                return null;
             });
         }
 
-        Map<String, String> resultsMap = new HashMap<>();
         try {
-            // 2. Submit all tasks and wait for results
-            List<Future<Map.Entry<String, String>>> futures = executor.invokeAll(tasks);
-
-            // 3. Extract results and populate the final map
-            for (Future<Map.Entry<String, String>> future : futures) {
-                Map.Entry<String, String> entry = future.get();
-                resultsMap.put(entry.getKey(), entry.getValue());
+            // Future.get() both surfaces task failures and makes every chunk's writes visible here.
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
             }
-        } catch (InterruptedException | ExecutionException e) {
+        } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException("Matching failed", e);
+        } catch (ExecutionException e) {
+            // A failing lookup surfaces as the exception it threw, as it would on the caller's thread.
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Matching failed", e.getCause());
         }
+    }
 
-        return resultsMap;
+    /**
+     * Work on one contiguous range of a batch, [from, to).
+     */
+    @FunctionalInterface
+    private interface ChunkTask {
+        void run(int from, int to);
+    }
+
+    /**
+     * Replaces the loaded prefix set without restarting the service.
+     * The new matcher is built off to the side and published with a single atomic swap:
+     * in-flight lookups finish on the previous matcher, later lookups see the new one.
+     * The previous matcher is not closed, since a pinned batch may still be reading it;
+     * off-heap memory it holds is returned when the collector reclaims it, after the last such batch.
+     * @param prefixes The complete new prefix set.
+     */
+    public void reload(List<String> prefixes) {
+        log.debug("Service reloading: Building a new matcher for {} prefixes...", prefixes.size());
+        PrefixMatcher replacement = buildMatcher(prefixes);
+        synchronized (updateLock) {
+            matcher.set(replacement);
+        }
+        log.info("Service reloaded with {} prefixes.", prefixes.size());
+    }
+
+    /**
+     * Replaces the loaded prefix set with the prefixes in a UTF-8, newline-delimited file.
+     * The file is streamed into the new matcher, so the prefixes are never held as a List of Strings,
+     * unless a Bloom filter is enabled: it is sized from the prefix count, so the lines are collected first.
+     * The prefix count is not known up front, so AUTO resolves to TRIE here.
+     * @param prefixFile Path to the prefix file.
+     */
+    public void reload(Path prefixFile) {
+        log.debug("Service reloading: Building a new matcher from {}...", prefixFile);
+        PrefixMatcher replacement = newMatcher(Integer.MAX_VALUE);
+        try {
+            replacement.loadPrefixes(prefixFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read prefixes from " + prefixFile, e);
+        }
+        synchronized (updateLock) {
+            matcher.set(replacement);
+        }
+        log.info("Service reloaded from {}.", prefixFile);
+    }
+
+    /**
+     * Replaces the loaded prefix set with a snapshot compiled earlier by MappedTriePrefixMatcher.compile.
+     * The file is mapped rather than parsed, so the swap costs no build, whatever the configured approach.
+     * The mapped trie is immutable and is never put behind the Bloom filter.
+     * @param snapshotFile A compiled trie snapshot.
+     */
+    public void reloadSnapshot(Path snapshotFile) {
+        log.debug("Service reloading: Mapping the trie snapshot {}...", snapshotFile);
+        PrefixMatcher replacement = MappedTriePrefixMatcher.open(snapshotFile);
+        synchronized (updateLock) {
+            matcher.set(replacement);
+        }
+        log.info("Service reloaded from snapshot {}.", snapshotFile);
+    }
+
+    /**
+     * Adds a single prefix to the live prefix set without blocking concurrent lookups.
+     * @param prefix The prefix to add.
+     * @throws UnsupportedOperationException if the current matcher is immutable, including a mapped snapshot.
+     */
+    public void addPrefix(String prefix) {
+        synchronized (updateLock) {
+            matcher.get().addPrefix(prefix);
+        }
+    }
+
+    /**
+     * Removes a single prefix from the live prefix set without blocking concurrent lookups.
+     * @param prefix The prefix to remove.
+     * @return true if the prefix was present and has been removed.
+     * @throws UnsupportedOperationException if the current matcher is immutable, including a mapped snapshot.
+     */
+    public boolean removePrefix(String prefix) {
+        synchronized (updateLock) {
+            return matcher.get().removePrefix(prefix);
+        }
+    }
+
+    /**
+     * @return Lookup, short-circuit and false-positive counts of the Bloom filter across all reloads,
+     * or null if the service was created without one.
+     */
+    public BloomFilterMetrics getBloomFilterMetrics() {
+        return bloomFilterMetrics;
     }
 
     /**
-     * Shuts down the thread pool gracefully when the application exits.
+     * Shuts down the thread pool gracefully when the application exits,
+     * then closes the matcher. Off-heap memory it holds is returned when the collector reclaims it.
      */
     public void shutdown() {
         log.info("Service shutting down ExecutorService...");
@@ -102,6 +387,8 @@ public class LongestPrefixMatchService {
         } catch (InterruptedException e) {
             executor.shutdownNow();
             Thread.currentThread().interrupt();
+        } finally {
+            matcher.get().close();
         }
     }
 }
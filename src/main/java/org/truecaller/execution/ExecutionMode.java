@@ -0,0 +1,14 @@
+package org.truecaller.execution;
+
+/**
+ * Strategies for running the batch work of LongestPrefixMatchService.
+ */
+public enum ExecutionMode {
+
+    // Batches run on the calling thread; no pool, no hand-off latency.
+    CALLER_RUNS,
+    // Batches are split across a work-stealing ForkJoinPool sized to the available processors.
+    WORK_STEALING,
+    // Every batch chunk runs on its own virtual thread; suited to thousands of concurrent blocking callers.
+    VIRTUAL_THREADS
+}
@@ -0,0 +1,80 @@
+package org.truecaller.flow;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+
+/**
+ * A Flow.Publisher that emits the longest matching prefix for every string its upstream publishes.
+ * Matching is one-to-one and synchronous, so the upstream Subscription is handed to the subscriber as is:
+ * downstream request(n) becomes upstream request(n), and the subscriber's demand bounds the whole pipeline.
+ * No buffering, no extra threads; each item is matched on the thread that delivers it.
+ */
+public class MatchingPublisher implements Flow.Publisher<String> {
+
+    private final Flow.Publisher<String> upstream;
+    private final Function<String, String> matchFunction;
+
+    public MatchingPublisher(Flow.Publisher<String> upstream, Function<String, String> matchFunction) {
+        this.upstream = Objects.requireNonNull(upstream, "upstream");
+        this.matchFunction = Objects.requireNonNull(matchFunction, "matchFunction");
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super String> subscriber) {
+        upstream.subscribe(new MatchingSubscriber(Objects.requireNonNull(subscriber, "subscriber")));
+    }
+
+    /**
+     * Relays upstream signals to the downstream subscriber, replacing each input with its match.
+     */
+    private final class MatchingSubscriber implements Flow.Subscriber<String> {
+        private final Flow.Subscriber<? super String> downstream;
+        private Flow.Subscription subscription;
+        private boolean done;
+
+        private MatchingSubscriber(Flow.Subscriber<? super String> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            downstream.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(String item) {
+            if (done) {
+                return;
+            }
+            String match;
+            try {
+                match = matchFunction.apply(item);
+            } catch (RuntimeException e) {
+                // A failed lookup terminates the stream: stop the upstream and report the error once.
+                done = true;
+                subscription.cancel();
+                downstream.onError(e);
+                return;
+            }
+            downstream.onNext(match);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!done) {
+                done = true;
+                downstream.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (!done) {
+                done = true;
+                downstream.onComplete();
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.truecaller.models;
+
+/**
+ * Positional results of a batch match: entry i belongs to input i.
+ * Only match lengths are stored; the matched prefix String is created on demand,
+ * so duplicate inputs keep their own entries and no per-input map entry is ever built.
+ */
+public final class MatchResults {
+
+    private final String[] inputs;
+    private final int[] matchLengths;
+
+    public MatchResults(String[] inputs, int[] matchLengths) {
+        if (inputs.length != matchLengths.length) {
+            throw new IllegalArgumentException("Inputs and match lengths must be aligned");
+        }
+        this.inputs = inputs;
+        this.matchLengths = matchLengths;
+    }
+
+    public int size() {
+        return inputs.length;
+    }
+
+    public String getInput(int index) {
+        return inputs[index];
+    }
+
+    /**
+     * @return The length of the longest matching prefix of input {@code index}, or 0 if none matched.
+     */
+    public int getMatchLength(int index) {
+        return matchLengths[index];
+    }
+
+    public boolean isMatch(int index) {
+        return matchLengths[index] > 0;
+    }
+
+    /**
+     * @return The longest matching prefix of input {@code index}, or an empty string if none matched.
+     */
+    public String getMatch(int index) {
+        int length = matchLengths[index];
+        return length == 0 ? "" : inputs[index].substring(0, length);
+    }
+}
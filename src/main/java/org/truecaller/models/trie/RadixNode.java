@@ -0,0 +1,82 @@
+package org.truecaller.models.trie;
+
+import java.util.Arrays;
+
+/**
+ * Represents a single node in a path-compressed (radix) Trie.
+ * The edge leading into a node carries a whole substring instead of a single character,
+ * so chains without branches collapse into one node.
+ */
+public class RadixNode {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final RadixNode[] NO_NODES = new RadixNode[0];
+
+    // Substring on the edge from the parent to this node; empty only for the root.
+    private String label;
+
+    // First character of each child's label, sorted, parallel to nodes.
+    private char[] keys;
+    private RadixNode[] nodes;
+    private int size;
+
+    // Flag to mark if the path leading to this node forms a complete prefix.
+    private boolean isEndOfPrefix;
+
+    public RadixNode(String label) {
+        this.label = label;
+        this.keys = NO_KEYS;
+        this.nodes = NO_NODES;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Returns the child whose label starts with the given character, or null if there is none.
+     */
+    public RadixNode getChild(char firstChar) {
+        int index = Arrays.binarySearch(keys, 0, size, firstChar);
+        return index >= 0 ? nodes[index] : null;
+    }
+
+    /**
+     * Adds the child, replacing any existing child whose label starts with the same character.
+     */
+    public void putChild(RadixNode child) {
+        char firstChar = child.label.charAt(0);
+        int index = Arrays.binarySearch(keys, 0, size, firstChar);
+        if (index >= 0) {
+            nodes[index] = child;
+            return;
+        }
+        int insertAt = -index - 1;
+        if (size == keys.length) {
+            int capacity = Math.max(2, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            nodes = Arrays.copyOf(nodes, capacity);
+        }
+        System.arraycopy(keys, insertAt, keys, insertAt + 1, size - insertAt);
+        System.arraycopy(nodes, insertAt, nodes, insertAt + 1, size - insertAt);
+        keys[insertAt] = firstChar;
+        nodes[insertAt] = child;
+        size++;
+    }
+
+    public int getChildCount() {
+        return size;
+    }
+
+    public boolean isEndOfPrefix() {
+        return isEndOfPrefix;
+    }
+
+    public void setEndOfPrefix(boolean endOfPrefix) {
+        isEndOfPrefix = endOfPrefix;
+    }
+}
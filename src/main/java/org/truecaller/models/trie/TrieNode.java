@@ -1,26 +1,176 @@
 package org.truecaller.models.trie;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Represents a single node in the Trie structure.
+ * Children are kept in a primitive char-keyed table so traversal never boxes a Character:
+ * small fan-outs use sorted parallel arrays, wide fan-outs switch to an open-addressed table.
  */
 public class TrieNode {
 
-    // Map to store children nodes, keyed by the character leading to them.
-    private final Map<Character, TrieNode> children;
+    // Fan-out above which the sorted arrays are converted into an open-addressed table.
+    private static final int SORTED_ARRAY_MAX_CHILDREN = 8;
+
+    // Shared empty tables, so leaf nodes (the vast majority) carry no per-node arrays.
+    private static final char[] NO_KEYS = new char[0];
+    private static final TrieNode[] NO_NODES = new TrieNode[0];
+
+    // Keys leading to each child; sorted when in array mode, slot-addressed when hashed.
+    private char[] keys;
+
+    // Child nodes, parallel to keys. In hashed mode a null slot marks an empty bucket.
+    private TrieNode[] nodes;
+
+    private int size;
+    private boolean hashed;
 
     // Flag to mark if the path leading to this node forms a complete prefix.
     private boolean isEndOfPrefix;
 
     public TrieNode() {
-        this.children = new HashMap<>();
+        this.keys = NO_KEYS;
+        this.nodes = NO_NODES;
         this.isEndOfPrefix = false;
     }
 
-    public Map<Character, TrieNode> getChildren() {
-        return children;
+    /**
+     * Returns the child reached through the given character, or null if there is none.
+     */
+    public TrieNode getChild(char key) {
+        if (hashed) {
+            int mask = nodes.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                TrieNode node = nodes[slot];
+                if (node == null || keys[slot] == key) {
+                    return node;
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            char current = keys[i];
+            if (current == key) {
+                return nodes[i];
+            }
+            if (current > key) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the child reached through the given character, creating it when absent.
+     */
+    public TrieNode getOrCreateChild(char key) {
+        TrieNode child = getChild(key);
+        if (child == null) {
+            child = new TrieNode();
+            putChild(key, child);
+        }
+        return child;
+    }
+
+    /**
+     * Adds or replaces the child reached through the given character.
+     */
+    public void putChild(char key, TrieNode child) {
+        if (hashed) {
+            putHashed(key, child);
+            return;
+        }
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            nodes[index] = child;
+            return;
+        }
+        if (size == SORTED_ARRAY_MAX_CHILDREN) {
+            convertToHashed();
+            putHashed(key, child);
+            return;
+        }
+        int insertAt = -index - 1;
+        if (size == keys.length) {
+            int capacity = Math.max(2, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            nodes = Arrays.copyOf(nodes, capacity);
+        }
+        System.arraycopy(keys, insertAt, keys, insertAt + 1, size - insertAt);
+        System.arraycopy(nodes, insertAt, nodes, insertAt + 1, size - insertAt);
+        keys[insertAt] = key;
+        nodes[insertAt] = child;
+        size++;
+    }
+
+    /**
+     * Removes the child reached through the given character, if present.
+     */
+    public void removeChild(char key) {
+        if (getChild(key) == null) {
+            return;
+        }
+        if (!hashed) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(nodes, index + 1, nodes, index, size - index - 1);
+            nodes[--size] = null;
+            return;
+        }
+        // Deleting from an open-addressed table would break probe chains, so rebuild it without the key.
+        char[] oldKeys = keys;
+        TrieNode[] oldNodes = nodes;
+        keys = NO_KEYS;
+        nodes = NO_NODES;
+        size = 0;
+        hashed = false;
+        for (int slot = 0; slot < oldNodes.length; slot++) {
+            if (oldNodes[slot] != null && oldKeys[slot] != key) {
+                putChild(oldKeys[slot], oldNodes[slot]);
+            }
+        }
+    }
+
+    /**
+     * Returns a shallow copy of this node: the child table is duplicated, the children themselves are shared.
+     * Used for copy-on-write updates, where the original must stay untouched for concurrent readers.
+     */
+    public TrieNode copy() {
+        TrieNode copy = new TrieNode();
+        if (nodes.length > 0) {
+            copy.keys = keys.clone();
+            copy.nodes = nodes.clone();
+        }
+        copy.size = size;
+        copy.hashed = hashed;
+        copy.isEndOfPrefix = isEndOfPrefix;
+        return copy;
+    }
+
+    public int getChildCount() {
+        return size;
+    }
+
+    /**
+     * Visits every child in ascending key order.
+     */
+    public void forEachChild(ChildVisitor visitor) {
+        if (!hashed) {
+            for (int i = 0; i < size; i++) {
+                visitor.visit(keys[i], nodes[i]);
+            }
+            return;
+        }
+        char[] sortedKeys = new char[size];
+        int count = 0;
+        for (int slot = 0; slot < nodes.length; slot++) {
+            if (nodes[slot] != null) {
+                sortedKeys[count++] = keys[slot];
+            }
+        }
+        Arrays.sort(sortedKeys);
+        for (char key : sortedKeys) {
+            visitor.visit(key, getChild(key));
+        }
     }
 
     public boolean isEndOfPrefix() {
@@ -30,4 +180,64 @@ public class TrieNode {
     public void setEndOfPrefix(boolean endOfPrefix) {
         isEndOfPrefix = endOfPrefix;
     }
+
+    private void convertToHashed() {
+        char[] oldKeys = keys;
+        TrieNode[] oldNodes = nodes;
+        int oldSize = size;
+        // Keep the load factor at or below one half so probe sequences stay short.
+        allocateTable(Integer.highestOneBit(oldSize) << 2);
+        for (int i = 0; i < oldSize; i++) {
+            putHashed(oldKeys[i], oldNodes[i]);
+        }
+    }
+
+    private void putHashed(char key, TrieNode child) {
+        int mask = nodes.length - 1;
+        int slot = hash(key) & mask;
+        while (nodes[slot] != null) {
+            if (keys[slot] == key) {
+                nodes[slot] = child;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        nodes[slot] = child;
+        size++;
+        if (size * 2 > nodes.length) {
+            rehash(nodes.length * 2);
+        }
+    }
+
+    private void rehash(int capacity) {
+        char[] oldKeys = keys;
+        TrieNode[] oldNodes = nodes;
+        allocateTable(capacity);
+        for (int slot = 0; slot < oldNodes.length; slot++) {
+            if (oldNodes[slot] != null) {
+                putHashed(oldKeys[slot], oldNodes[slot]);
+            }
+        }
+    }
+
+    private void allocateTable(int capacity) {
+        keys = new char[capacity];
+        nodes = new TrieNode[capacity];
+        size = 0;
+        hashed = true;
+    }
+
+    private static int hash(char key) {
+        // Spread consecutive characters (digits, letters) across the table.
+        return (key * 0x9E3779B1) >>> 16;
+    }
+
+    /**
+     * Callback used to walk a node's children without exposing the underlying table.
+     */
+    @FunctionalInterface
+    public interface ChildVisitor {
+        void visit(char key, TrieNode child);
+    }
 }
@@ -0,0 +1,237 @@
+package org.truecaller.models.trie;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * Flat, versioned binary encoding of a TrieNode graph that can be searched in place,
+ * whether it sits in a mapped file or any other ByteBuffer.
+ *
+ * Layout (little-endian, every node 4-byte aligned):
+ * <pre>
+ *   header: int magic, int version, int nodeCount, int totalBytes
+ *   node:   int (childCount << 1 | endOfPrefix)
+ *           char[childCount] keys, ascending, padded to a multiple of 4 bytes
+ *           int[childCount]  absolute byte offsets of the children
+ * </pre>
+ * The root node directly follows the header. Offsets are ints, so a snapshot is limited to 2 GiB,
+ * which is also the most a single MappedByteBuffer can address.
+ */
+public final class TrieSnapshot {
+
+    public static final int MAGIC = 0x4C504D54; // "LPMT"
+    public static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 16;
+    private static final int ROOT_OFFSET = HEADER_BYTES;
+
+    private TrieSnapshot() {
+    }
+
+    /**
+     * Encodes the trie into a buffer obtained from the allocator, which receives the exact size in bytes.
+     * @return The encoded snapshot, ready for lookups.
+     */
+    public static ByteBuffer encode(TrieNode root, IntFunction<ByteBuffer> allocator) {
+        Layout layout = new Layout(root);
+        ByteBuffer snapshot = allocator.apply(layout.totalBytes).order(ByteOrder.LITTLE_ENDIAN);
+        layout.writeTo(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Writes the trie to a snapshot file. The file is written next to the target and moved into place,
+     * so processes that still have the previous snapshot mapped keep reading a consistent copy.
+     */
+    public static void write(TrieNode root, Path file) throws IOException {
+        Layout layout = new Layout(root);
+        Path target = file.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, layout.totalBytes);
+                layout.writeTo(out.order(ByteOrder.LITTLE_ENDIAN));
+                out.force();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Maps a snapshot file read-only. The mapping stays valid after the channel is closed and is backed
+     * by the page cache, so every process mapping the same file shares a single copy.
+     */
+    public static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Trie snapshot exceeds 2 GiB: " + file);
+            }
+            return validate(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Checks the header of an encoded snapshot.
+     * @return The same buffer, set to the snapshot byte order.
+     * @throws IllegalArgumentException if the buffer does not hold a complete snapshot of a supported version.
+     */
+    public static ByteBuffer validate(ByteBuffer snapshot) {
+        snapshot.order(ByteOrder.LITTLE_ENDIAN);
+        if (snapshot.limit() < HEADER_BYTES || snapshot.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a trie snapshot");
+        }
+        if (snapshot.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported trie snapshot version " + snapshot.getInt(4));
+        }
+        if (snapshot.getInt(12) != snapshot.limit()) {
+            throw new IllegalArgumentException("Truncated trie snapshot");
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return The number of nodes stored in the snapshot.
+     */
+    public static int nodeCount(ByteBuffer snapshot) {
+        return snapshot.getInt(8);
+    }
+
+    /**
+     * Walks the encoded trie directly; only absolute reads are used, so one buffer can serve any number of threads.
+     * @return The length of the longest prefix of input[offset, offset + length) stored in the snapshot, or 0 if none is.
+     */
+    public static int findLongestMatchLength(ByteBuffer snapshot, CharSequence input, int offset, int length) {
+        int node = ROOT_OFFSET;
+        int longestMatch = 0;
+
+        for (int i = 0; i < length; i++) {
+            int count = snapshot.getInt(node) >>> 1;
+            int index = findKey(snapshot, node + 4, count, input.charAt(offset + i));
+            if (index < 0) {
+                break;
+            }
+            node = snapshot.getInt(node + 4 + keyBytes(count) + 4 * index);
+            if ((snapshot.getInt(node) & 1) != 0) {
+                longestMatch = i + 1;
+            }
+        }
+        return longestMatch;
+    }
+
+    /**
+     * Walks the encoded trie once and passes the length of every stored prefix of input[offset, offset + length)
+     * to the sink, shortest first.
+     */
+    public static void findAllMatchingPrefixes(ByteBuffer snapshot, CharSequence input, int offset, int length,
+                                               IntConsumer matchLengths) {
+        int node = ROOT_OFFSET;
+
+        for (int i = 0; i < length; i++) {
+            int count = snapshot.getInt(node) >>> 1;
+            int index = findKey(snapshot, node + 4, count, input.charAt(offset + i));
+            if (index < 0) {
+                break;
+            }
+            node = snapshot.getInt(node + 4 + keyBytes(count) + 4 * index);
+            if ((snapshot.getInt(node) & 1) != 0) {
+                matchLengths.accept(i + 1);
+            }
+        }
+    }
+
+    private static int findKey(ByteBuffer snapshot, int keysOffset, int count, char key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char current = snapshot.getChar(keysOffset + 2 * mid);
+            if (current < key) {
+                low = mid + 1;
+            } else if (current > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static int keyBytes(int count) {
+        return (2 * count + 3) & ~3;
+    }
+
+    private static long nodeBytes(int count) {
+        return 4L + keyBytes(count) + 4L * count;
+    }
+
+    /**
+     * Breadth-first placement of every distinct node. Nodes are tracked by identity,
+     * so a node reachable along several paths is written once and shared.
+     */
+    private static final class Layout {
+        private final List<TrieNode> order = new ArrayList<>();
+        private final Map<TrieNode, Integer> offsets = new IdentityHashMap<>();
+        private final int totalBytes;
+
+        private Layout(TrieNode root) {
+            long next = ROOT_OFFSET;
+            order.add(root);
+            offsets.put(root, ROOT_OFFSET);
+            next += nodeBytes(root.getChildCount());
+            for (int head = 0; head < order.size(); head++) {
+                long[] cursor = {next};
+                order.get(head).forEachChild((key, child) -> {
+                    if (!offsets.containsKey(child)) {
+                        if (cursor[0] > Integer.MAX_VALUE) {
+                            throw new IllegalStateException("Trie snapshot would exceed 2 GiB");
+                        }
+                        offsets.put(child, (int) cursor[0]);
+                        order.add(child);
+                        cursor[0] += nodeBytes(child.getChildCount());
+                    }
+                });
+                next = cursor[0];
+            }
+            if (next > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Trie snapshot would exceed 2 GiB");
+            }
+            this.totalBytes = (int) next;
+        }
+
+        private void writeTo(ByteBuffer out) {
+            out.putInt(0, MAGIC);
+            out.putInt(4, VERSION);
+            out.putInt(8, order.size());
+            out.putInt(12, totalBytes);
+            for (TrieNode node : order) {
+                int offset = offsets.get(node);
+                int count = node.getChildCount();
+                out.putInt(offset, count << 1 | (node.isEndOfPrefix() ? 1 : 0));
+                int keysOffset = offset + 4;
+                int childrenOffset = keysOffset + keyBytes(count);
+                int[] index = {0};
+                node.forEachChild((key, child) -> {
+                    out.putChar(keysOffset + 2 * index[0], key);
+                    out.putInt(childrenOffset + 4 * index[0], offsets.get(child));
+                    index[0]++;
+                });
+            }
+        }
+    }
+}
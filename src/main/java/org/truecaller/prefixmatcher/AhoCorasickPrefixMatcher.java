@@ -0,0 +1,219 @@
+package org.truecaller.prefixmatcher;
+
+import org.truecaller.models.trie.TrieNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements the PrefixMatcher interface using an immutable Aho-Corasick automaton, which can also find
+ * every prefix at any offset of a text in a single linear pass through scan().
+ * Failure links are resolved at build time into a dense goto table over the characters that occur in the
+ * prefixes, so each character of the text costs exactly one table read, with no failure chain to follow.
+ * Anchored lookups follow only the Trie edges of that table: those are the transitions that go one level deeper.
+ * The price is memory: the table holds one int per state and alphabet character, so it grows as the number
+ * of Trie nodes times the alphabet width. Long prefixes over a wide alphabet add up fast; a million 30-character
+ * prefixes over 40 characters need several gigabytes, so for sets that large use it only if scan() is needed.
+ */
+public class AhoCorasickPrefixMatcher implements PrefixMatcher {
+    private static final int ROOT = 0;
+
+    // Maps a character to its alphabet code (1..n); 0 means the character never occurs in any prefix.
+    private int[] charCodes = new int[0];
+    // Row width of the goto table: one column per alphabet code, plus column 0 which always leads to the root.
+    private int stride = 1;
+    // gotoTable[state * stride + code] is the state reached from state on a character with that code.
+    private int[] gotoTable = new int[1];
+    // Length of the path from the root to each state.
+    private int[] depth = new int[1];
+    // Nearest state on the failure chain (excluding the state itself) that terminates a prefix, or ROOT if none does.
+    private int[] outputLink = new int[1];
+    // Bit set of states that terminate a prefix.
+    private long[] terminal = new long[1];
+    private boolean loaded;
+
+    /**
+     * Builds the automaton for the prefixes. It is immutable, so this may only be called once per instance.
+     * @param prefixes - All the prefixes.
+     */
+    @Override
+    public void loadPrefixes(List<String> prefixes) {
+        if (loaded) {
+            throw new IllegalStateException("Aho-Corasick automaton is immutable and has already been loaded");
+        }
+        compile(TriePrefixMatcher.build(prefixes));
+        this.loaded = true;
+    }
+
+    @Override
+    public String findLongestMatchingPrefix(String inputString) {
+        int length = findLongestMatchLength(inputString);
+        return length == 0 ? "" : inputString.substring(0, length);
+    }
+
+    @Override
+    public int findLongestMatchLength(String inputString) {
+        return findLongestMatchLength(inputString, 0, inputString.length());
+    }
+
+    @Override
+    public int findLongestMatchLength(CharSequence input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        int state = ROOT;
+        int longestMatch = 0;
+
+        for (int i = 0; i < length; i++) {
+            state = advanceAnchored(state, input.charAt(offset + i), i);
+            if (state < 0) {
+                break;
+            }
+            if (isTerminal(state)) {
+                longestMatch = i + 1;
+            }
+        }
+        return longestMatch;
+    }
+
+    @Override
+    public void findAllMatchingPrefixes(CharSequence input, int offset, int length, IntConsumer matchLengths) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        int state = ROOT;
+
+        for (int i = 0; i < length; i++) {
+            state = advanceAnchored(state, input.charAt(offset + i), i);
+            if (state < 0) {
+                break;
+            }
+            if (isTerminal(state)) {
+                matchLengths.accept(i + 1);
+            }
+        }
+    }
+
+    /**
+     * Finds every occurrence of every prefix anywhere in the text, in time linear in the text length
+     * plus the number of occurrences.
+     * @param input The text to scan.
+     * @param sink Receives each occurrence; those ending at the same index are reported longest first.
+     */
+    public void scan(CharSequence input, MatchSink sink) {
+        scan(input, 0, input.length(), sink);
+    }
+
+    /**
+     * Finds every occurrence of every prefix anywhere in the region input[offset, offset + length).
+     * Occurrences are reported in order of their end index, longest first among those ending at the same index;
+     * their start indices are positions in the input, not in the region.
+     * @throws IndexOutOfBoundsException if the region lies outside the input.
+     */
+    public void scan(CharSequence input, int offset, int length, MatchSink sink) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        int[] codes = charCodes;
+        int state = ROOT;
+
+        for (int i = offset, end = offset + length; i < end; i++) {
+            char ch = input.charAt(i);
+            state = gotoTable[state * stride + (ch < codes.length ? codes[ch] : 0)];
+            for (int match = isTerminal(state) ? state : outputLink[state]; match != ROOT; match = outputLink[match]) {
+                sink.onMatch(i + 1 - depth[match], depth[match]);
+            }
+        }
+    }
+
+    /**
+     * @return The number of states in the automaton, root included.
+     */
+    public int getStateCount() {
+        return depth.length;
+    }
+
+    /**
+     * Follows the Trie edge for the character, ignoring failure transitions.
+     * @return The state one level below, or -1 if the state has no Trie edge for the character.
+     */
+    private int advanceAnchored(int state, char ch, int stateDepth) {
+        int code = ch < charCodes.length ? charCodes[ch] : 0;
+        int next = gotoTable[state * stride + code];
+        return depth[next] == stateDepth + 1 ? next : -1;
+    }
+
+    private boolean isTerminal(int state) {
+        return (terminal[state >>> 6] & (1L << state)) != 0;
+    }
+
+    /**
+     * Numbers the Trie nodes breadth-first and fills the goto table one row per state, in that order.
+     * A row starts as a copy of the row of the state's failure target, which is shallower and therefore
+     * already complete, and the state's own Trie edges are then written over it.
+     */
+    private void compile(TrieNode root) {
+        List<TrieNode> states = new ArrayList<>();
+        boolean[] seen = new boolean[Character.MAX_VALUE + 1];
+        states.add(root);
+        for (int state = 0; state < states.size(); state++) {
+            states.get(state).forEachChild((key, child) -> {
+                seen[key] = true;
+                states.add(child);
+            });
+        }
+
+        // Dense codes 1..n for the characters that occur in any prefix, in ascending character order.
+        int maxChar = Character.MAX_VALUE;
+        while (maxChar >= 0 && !seen[maxChar]) {
+            maxChar--;
+        }
+        int[] codes = new int[maxChar + 1];
+        int alphabetSize = 0;
+        for (int ch = 0; ch <= maxChar; ch++) {
+            if (seen[ch]) {
+                codes[ch] = ++alphabetSize;
+            }
+        }
+
+        int stateCount = states.size();
+        int width = alphabetSize + 1;
+        if ((long) stateCount * width > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Aho-Corasick goto table would exceed 2^31 entries");
+        }
+        int[] table = new int[stateCount * width];
+        int[] depths = new int[stateCount];
+        int[] failure = new int[stateCount];
+        int[] outputs = new int[stateCount];
+        long[] terminalStates = new long[(stateCount + 63) >>> 6];
+        int[] nextId = {1};
+
+        for (int state = 0; state < stateCount; state++) {
+            TrieNode node = states.get(state);
+            int row = state * width;
+            int parent = state;
+            if (state != ROOT) {
+                System.arraycopy(table, failure[state] * width, table, row, width);
+                outputs[state] = isSet(terminalStates, failure[state]) ? failure[state] : outputs[failure[state]];
+            }
+            if (node.isEndOfPrefix() && state != ROOT) {
+                terminalStates[state >>> 6] |= 1L << state;
+            }
+            node.forEachChild((key, child) -> {
+                int id = nextId[0]++;
+                int column = codes[key];
+                // Before it is overwritten, the copied entry is where the failure target goes on this character.
+                failure[id] = parent == ROOT ? ROOT : table[row + column];
+                depths[id] = depths[parent] + 1;
+                table[row + column] = id;
+            });
+        }
+
+        this.charCodes = codes;
+        this.stride = width;
+        this.gotoTable = table;
+        this.depth = depths;
+        this.outputLink = outputs;
+        this.terminal = terminalStates;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+}
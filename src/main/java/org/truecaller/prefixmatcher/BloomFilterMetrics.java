@@ -0,0 +1,71 @@
+package org.truecaller.prefixmatcher;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters kept by BloomFilteredPrefixMatcher. Updated with LongAdders, so concurrent lookups do not contend
+ * on a shared counter. One instance can be handed to every matcher built across reloads, so the counts
+ * describe the service as a whole rather than a single prefix set.
+ */
+public final class BloomFilterMetrics {
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    void recordShortCircuit() {
+        lookups.increment();
+        shortCircuited.increment();
+    }
+
+    void recordPassed(boolean matched) {
+        lookups.increment();
+        if (!matched) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * @return The number of longest-match lookups that went through the filter.
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return The number of lookups the filter answered on its own, without reaching the matcher.
+     */
+    public long getShortCircuited() {
+        return shortCircuited.sum();
+    }
+
+    /**
+     * @return The number of lookups the filter let through that then matched nothing.
+     */
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * @return The share of all lookups answered by the filter alone, or 0 before the first lookup.
+     */
+    public double getShortCircuitRate() {
+        long total = getLookups();
+        return total == 0 ? 0 : (double) getShortCircuited() / total;
+    }
+
+    /**
+     * @return The share of non-matching lookups the filter failed to reject, or 0 before the first of them.
+     */
+    public double getFalsePositiveRate() {
+        long rejected = getShortCircuited();
+        long missed = getFalsePositives();
+        return rejected + missed == 0 ? 0 : (double) missed / (rejected + missed);
+    }
+
+    @Override
+    public String toString() {
+        return "BloomFilterMetrics[lookups=" + getLookups() + ", shortCircuited=" + getShortCircuited()
+                + ", falsePositives=" + getFalsePositives() + "]";
+    }
+}
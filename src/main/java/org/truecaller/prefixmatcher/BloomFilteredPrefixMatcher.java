@@ -0,0 +1,214 @@
+package org.truecaller.prefixmatcher;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Decorates another PrefixMatcher with a Bloom filter over its prefixes, so inputs that match nothing
+ * are answered after a few bit tests instead of a walk through the matcher.
+ * The filter is blocked: every key lives in a single 64-bit word, so a test costs one memory read.
+ * A key is the hash of a prefix together with its length, and the lengths present are kept in a table,
+ * so a lookup hashes the input once, incrementally, and tests only the lengths some prefix has.
+ * If no length passes, no prefix can match; otherwise the lookup goes to the wrapped matcher, which
+ * keeps the result exact: the filter can only cost a wasted walk, never a wrong answer.
+ * It pays off when most lookups miss after walking deep into the matcher, as with pointer-based Tries;
+ * misses that fail within the first few characters are already cheap, and gain nothing from it.
+ * The filter is sized from the prefix count, so stream and file loads collect the prefixes into a List first.
+ */
+public class BloomFilteredPrefixMatcher implements PrefixMatcher {
+    // 16 bits per prefix and 4 bits per key keep the false-positive rate near 0.5% per length tested,
+    // while the filter stays at 2 bytes per prefix, a fraction of the size of any of the matchers.
+    private static final int BITS_PER_PREFIX = 16;
+    private static final int MIN_WORDS = 64;
+
+    private final PrefixMatcher delegate;
+    private final BloomFilterMetrics metrics;
+    // Replaced on load and re-published after each addPrefix, so lookups always read a complete filter.
+    private volatile Filter filter = new Filter(new long[MIN_WORDS], new boolean[1]);
+    private boolean loaded;
+
+    public BloomFilteredPrefixMatcher(PrefixMatcher delegate) {
+        this(delegate, new BloomFilterMetrics());
+    }
+
+    /**
+     * @param delegate - The matcher answering every lookup the filter lets through.
+     * @param metrics - Where lookups, short circuits and false positives are counted; may be shared across matchers.
+     */
+    public BloomFilteredPrefixMatcher(PrefixMatcher delegate, BloomFilterMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Builds the filter for the prefixes, sized for them on the first load, then loads them into the wrapped matcher.
+     * @param prefixes - All the prefixes.
+     */
+    @Override
+    public synchronized void loadPrefixes(List<String> prefixes) {
+        // A later load adds to the matcher's prefix set, so the keys already in the filter must stay.
+        Filter updated = loaded ? filter : Filter.sizedFor(prefixes.size());
+        for (String prefix : prefixes) {
+            updated = updated.with(prefix);
+        }
+        this.filter = updated;
+        delegate.loadPrefixes(prefixes);
+        this.loaded = true;
+    }
+
+    @Override
+    public String findLongestMatchingPrefix(String inputString) {
+        if (!filter.mightMatch(inputString, 0, inputString.length())) {
+            metrics.recordShortCircuit();
+            return "";
+        }
+        String match = delegate.findLongestMatchingPrefix(inputString);
+        metrics.recordPassed(!match.isEmpty());
+        return match;
+    }
+
+    @Override
+    public int findLongestMatchLength(String inputString) {
+        return findLongestMatchLength(inputString, 0, inputString.length());
+    }
+
+    @Override
+    public int findLongestMatchLength(CharSequence input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        if (!filter.mightMatch(input, offset, length)) {
+            metrics.recordShortCircuit();
+            return 0;
+        }
+        int match = delegate.findLongestMatchLength(input, offset, length);
+        metrics.recordPassed(match > 0);
+        return match;
+    }
+
+    /**
+     * Skips the wrapped matcher when no prefix can match. Not counted in the metrics, which cover longest-match lookups.
+     */
+    @Override
+    public void findAllMatchingPrefixes(CharSequence input, int offset, int length, IntConsumer matchLengths) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        if (filter.mightMatch(input, offset, length)) {
+            delegate.findAllMatchingPrefixes(input, offset, length, matchLengths);
+        }
+    }
+
+    /**
+     * Adds the prefix to the filter before the wrapped matcher, so once the matcher holds the new prefix,
+     * every later lookup gets past the filter. The filter keeps its size, so many additions raise the
+     * false-positive rate until the next full load.
+     */
+    @Override
+    public synchronized void addPrefix(String prefix) {
+        Filter updated = filter.with(prefix);
+        this.filter = updated;
+        delegate.addPrefix(prefix);
+    }
+
+    /**
+     * Removes the prefix from the wrapped matcher only: a Bloom filter cannot forget a key, so the stale
+     * bits merely let some lookups through to the matcher until the next full load.
+     */
+    @Override
+    public synchronized boolean removePrefix(String prefix) {
+        return delegate.removePrefix(prefix);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    public BloomFilterMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Blocked Bloom filter plus the table of prefix lengths present. The words are shared between
+     * successive instances and only ever gain bits, so a lookup racing an addition sees either state.
+     */
+    private static final class Filter {
+        private final long[] words;
+        // lengths[n] is true if some prefix has length n; the array ends at the longest prefix length.
+        private final boolean[] lengths;
+
+        private Filter(long[] words, boolean[] lengths) {
+            this.words = words;
+            this.lengths = lengths;
+        }
+
+        private static Filter sizedFor(int prefixCount) {
+            long wordsNeeded = (long) prefixCount * BITS_PER_PREFIX / 64;
+            int words = MIN_WORDS;
+            while (words < wordsNeeded && words < 1 << 30) {
+                words <<= 1;
+            }
+            return new Filter(new long[words], new boolean[1]);
+        }
+
+        private Filter with(String prefix) {
+            int length = prefix.length();
+            if (length == 0) {
+                // The empty prefix matches with length 0, which lookups report as no match anyway.
+                return this;
+            }
+            long hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = step(hash, prefix.charAt(i));
+            }
+            long key = mix(hash, length);
+            words[wordIndex(key, words.length)] |= bitMask(key);
+            if (length < lengths.length && lengths[length]) {
+                return this;
+            }
+            boolean[] newLengths = Arrays.copyOf(lengths, Math.max(lengths.length, length + 1));
+            newLengths[length] = true;
+            return new Filter(words, newLengths);
+        }
+
+        private boolean mightMatch(CharSequence input, int offset, int length) {
+            boolean[] present = lengths;
+            int limit = Math.min(length, present.length - 1);
+            long hash = 0;
+            for (int i = 0; i < limit; i++) {
+                hash = step(hash, input.charAt(offset + i));
+                if (present[i + 1]) {
+                    long key = mix(hash, i + 1);
+                    long mask = bitMask(key);
+                    if ((words[wordIndex(key, words.length)] & mask) == mask) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static long step(long hash, char ch) {
+            return (hash + ch) * 0x9E3779B97F4A7C15L;
+        }
+
+        /**
+         * Finalises the rolling hash with the prefix length (the murmur3 64-bit finaliser),
+         * so every bit of the key depends on every character.
+         */
+        private static long mix(long hash, int length) {
+            long k = hash ^ length;
+            k = (k ^ k >>> 33) * 0xFF51AFD7ED558CCDL;
+            k = (k ^ k >>> 33) * 0xC4CEB9FE1A85EC53L;
+            return k ^ k >>> 33;
+        }
+
+        private static int wordIndex(long key, int wordCount) {
+            return (int) (key >>> 32) & (wordCount - 1);
+        }
+
+        // Four bits within the word, taken from the low 24 bits of the key.
+        private static long bitMask(long key) {
+            return 1L << key | 1L << (key >>> 6) | 1L << (key >>> 12) | 1L << (key >>> 18);
+        }
+    }
+}
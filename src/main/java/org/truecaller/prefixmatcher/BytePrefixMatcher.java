@@ -0,0 +1,21 @@
+package org.truecaller.prefixmatcher;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Matches prefixes directly against encoded input, for callers that hold UTF-8 bytes
+ * (network buffers, Kafka records) and should not decode them into a String first.
+ */
+public interface BytePrefixMatcher {
+    /**
+     * Finds the longest matching prefix of input[offset, offset + length).
+     * @return The length in bytes of the longest matching prefix, or 0 if none is found.
+     */
+    int findLongestMatchLength(byte[] input, int offset, int length);
+
+    /**
+     * Finds the longest matching prefix of the buffer's remaining bytes, without changing its position.
+     * @return The length in bytes of the longest matching prefix, or 0 if none is found.
+     */
+    int findLongestMatchLength(ByteBuffer input);
+}
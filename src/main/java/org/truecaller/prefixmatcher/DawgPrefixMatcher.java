@@ -0,0 +1,159 @@
+package org.truecaller.prefixmatcher;
+
+import org.truecaller.models.trie.TrieNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements the PrefixMatcher interface using an immutable directed acyclic word graph (DAWG):
+ * the minimal Trie built by SortedTrieBuilder, where identical suffix subtrees are stored once,
+ * flattened into a handful of primitive arrays. Terminal states still mark the end of a prefix,
+ * so the walk from the start state reports the length of the longest match exactly as a Trie does.
+ */
+public class DawgPrefixMatcher implements PrefixMatcher {
+    static final int START = 0;
+
+    // The edges leaving state s occupy [firstEdge[s], firstEdge[s + 1]) of labels/targets, sorted by label.
+    private int[] firstEdge = {0, 0};
+    private char[] labels = new char[0];
+    private int[] targets = new int[0];
+    // Bit set of states that terminate a prefix.
+    private long[] terminal = new long[1];
+    private boolean loaded;
+
+    /**
+     * Builds the minimal automaton for the prefixes. The automaton is immutable,
+     * so this may only be called once per instance.
+     * @param prefixes - All the prefixes.
+     */
+    @Override
+    public void loadPrefixes(List<String> prefixes) {
+        if (loaded) {
+            throw new IllegalStateException("DAWG is immutable and has already been loaded");
+        }
+        flatten(SortedTrieBuilder.build(prefixes));
+        this.loaded = true;
+    }
+
+    @Override
+    public String findLongestMatchingPrefix(String inputString) {
+        int length = findLongestMatchLength(inputString);
+        return length == 0 ? "" : inputString.substring(0, length);
+    }
+
+    @Override
+    public int findLongestMatchLength(String inputString) {
+        return findLongestMatchLength(inputString, 0, inputString.length());
+    }
+
+    @Override
+    public int findLongestMatchLength(CharSequence input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        int state = START;
+        int longestMatch = 0;
+
+        for (int i = 0; i < length; i++) {
+            state = transition(state, input.charAt(offset + i));
+            if (state < 0) {
+                break;
+            }
+            if (isTerminal(state)) {
+                longestMatch = i + 1;
+            }
+        }
+        return longestMatch;
+    }
+
+    @Override
+    public void findAllMatchingPrefixes(CharSequence input, int offset, int length, IntConsumer matchLengths) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        int state = START;
+
+        for (int i = 0; i < length; i++) {
+            state = transition(state, input.charAt(offset + i));
+            if (state < 0) {
+                break;
+            }
+            if (isTerminal(state)) {
+                matchLengths.accept(i + 1);
+            }
+        }
+    }
+
+    /**
+     * Follows the edge labelled with the given character.
+     * @return The target state, or -1 if the state has no such edge.
+     */
+    int transition(int state, char label) {
+        int edge = Arrays.binarySearch(labels, firstEdge[state], firstEdge[state + 1], label);
+        return edge < 0 ? -1 : targets[edge];
+    }
+
+    boolean isTerminal(int state) {
+        return (terminal[state >>> 6] & (1L << state)) != 0;
+    }
+
+    /**
+     * @return The number of states in the automaton, start state included.
+     */
+    public int getStateCount() {
+        return firstEdge.length - 1;
+    }
+
+    /**
+     * @return The number of transitions in the automaton.
+     */
+    public int getEdgeCount() {
+        return labels.length;
+    }
+
+    /**
+     * Numbers the distinct nodes breadth-first, then lays out each state's edges contiguously.
+     */
+    private void flatten(TrieNode start) {
+        List<TrieNode> states = new ArrayList<>();
+        Map<TrieNode, Integer> ids = new IdentityHashMap<>();
+        states.add(start);
+        ids.put(start, START);
+        int edgeCount = 0;
+        for (int state = 0; state < states.size(); state++) {
+            TrieNode node = states.get(state);
+            edgeCount += node.getChildCount();
+            node.forEachChild((key, child) -> {
+                if (!ids.containsKey(child)) {
+                    ids.put(child, states.size());
+                    states.add(child);
+                }
+            });
+        }
+
+        int[] first = new int[states.size() + 1];
+        char[] edgeLabels = new char[edgeCount];
+        int[] edgeTargets = new int[edgeCount];
+        long[] terminalStates = new long[(states.size() + 63) >>> 6];
+        int[] edge = {0};
+        for (int state = 0; state < states.size(); state++) {
+            TrieNode node = states.get(state);
+            first[state] = edge[0];
+            if (node.isEndOfPrefix()) {
+                terminalStates[state >>> 6] |= 1L << state;
+            }
+            node.forEachChild((key, child) -> {
+                edgeLabels[edge[0]] = key;
+                edgeTargets[edge[0]++] = ids.get(child);
+            });
+        }
+        first[states.size()] = edgeCount;
+
+        this.firstEdge = first;
+        this.labels = edgeLabels;
+        this.targets = edgeTargets;
+        this.terminal = terminalStates;
+    }
+}
@@ -0,0 +1,256 @@
+package org.truecaller.prefixmatcher;
+
+import org.truecaller.models.trie.TrieNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements the PrefixMatcher interface using an immutable double-array trie.
+ * The prefixes are compiled into two flat int arrays (BASE/CHECK), so each character step
+ * costs one or two array reads instead of a pointer hop to another node object.
+ * A transition from state s on character code c leads to t = BASE[s] + c, valid only if CHECK[t] == s.
+ */
+public class DoubleArrayTriePrefixMatcher implements PrefixMatcher {
+    private static final int ROOT = 0;
+    private static final int FREE = -1;
+
+    // Maps a character to its alphabet code (1..n); 0 means the character never occurs in any prefix.
+    private int[] charCodes = new int[0];
+    private int[] base = new int[0];
+    private int[] check = new int[0];
+    // Bit set of states that terminate a prefix.
+    private long[] terminal = new long[0];
+    private boolean loaded;
+
+    /**
+     * Compiles the prefixes into the double-array layout. The compiled trie is immutable,
+     * so this may only be called once per instance.
+     * @param prefixes - All the prefixes.
+     */
+    @Override
+    public void loadPrefixes(List<String> prefixes) {
+        if (loaded) {
+            throw new IllegalStateException("Double-array trie is immutable and has already been loaded");
+        }
+        TrieNode root = new TrieNode();
+        char maxChar = 0;
+        for (String prefix : prefixes) {
+            TrieNode current = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                char ch = prefix.charAt(i);
+                maxChar = (char) Math.max(maxChar, ch);
+                current = current.getOrCreateChild(ch);
+            }
+            current.setEndOfPrefix(true);
+        }
+        this.charCodes = buildAlphabet(prefixes, maxChar);
+        new Builder().compile(root);
+        this.loaded = true;
+    }
+
+    @Override
+    public String findLongestMatchingPrefix(String inputString) {
+        int length = findLongestMatchLength(inputString);
+        return length == 0 ? "" : inputString.substring(0, length);
+    }
+
+    @Override
+    public int findLongestMatchLength(String inputString) {
+        return findLongestMatchLength(inputString, 0, inputString.length());
+    }
+
+    @Override
+    public int findLongestMatchLength(CharSequence input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        int[] codes = charCodes;
+        int state = ROOT;
+        int longestMatch = 0;
+
+        for (int i = 0; i < length; i++) {
+            char ch = input.charAt(offset + i);
+            int code = ch < codes.length ? codes[ch] : 0;
+            if (code == 0) {
+                break;
+            }
+            int next = base[state] + code;
+            if (next >= check.length || check[next] != state) {
+                break;
+            }
+            state = next;
+            if (isTerminal(state)) {
+                longestMatch = i + 1;
+            }
+        }
+        return longestMatch;
+    }
+
+    @Override
+    public void findAllMatchingPrefixes(CharSequence input, int offset, int length, IntConsumer matchLengths) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        int[] codes = charCodes;
+        int state = ROOT;
+
+        for (int i = 0; i < length; i++) {
+            char ch = input.charAt(offset + i);
+            int code = ch < codes.length ? codes[ch] : 0;
+            if (code == 0) {
+                break;
+            }
+            int next = base[state] + code;
+            if (next >= check.length || check[next] != state) {
+                break;
+            }
+            state = next;
+            if (isTerminal(state)) {
+                matchLengths.accept(i + 1);
+            }
+        }
+    }
+
+    private boolean isTerminal(int state) {
+        return (terminal[state >>> 6] & (1L << state)) != 0;
+    }
+
+    /**
+     * Assigns dense codes 1..n to the distinct characters, in ascending character order,
+     * so sibling codes keep the same order as the sorted children of a TrieNode.
+     */
+    private static int[] buildAlphabet(List<String> prefixes, char maxChar) {
+        int[] codes = new int[prefixes.isEmpty() ? 0 : maxChar + 1];
+        for (String prefix : prefixes) {
+            for (int i = 0; i < prefix.length(); i++) {
+                codes[prefix.charAt(i)] = 1;
+            }
+        }
+        int next = 1;
+        for (int ch = 0; ch < codes.length; ch++) {
+            if (codes[ch] != 0) {
+                codes[ch] = next++;
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * Places the states breadth-first, picking for each state the first BASE value whose
+     * child slots are all free.
+     */
+    private final class Builder {
+        private int[] base = new int[1024];
+        private int[] check = new int[1024];
+        private long[] terminal = new long[16];
+        // Union-find style forward links: following them from any slot reaches the lowest free slot at or after it.
+        private int[] nextFree = new int[1024];
+        private int size = ROOT + 1;
+
+        private Builder() {
+            Arrays.fill(check, FREE);
+            Arrays.setAll(nextFree, slot -> slot);
+            occupy(ROOT, ROOT);
+        }
+
+        private void compile(TrieNode root) {
+            // Breadth-first queue of nodes and the states they were placed at.
+            List<TrieNode> nodes = new ArrayList<>();
+            int[] states = new int[16];
+            nodes.add(root);
+            states[0] = ROOT;
+
+            int[] childCodes = new int[Math.max(1, charCodes.length)];
+            TrieNode[] children = new TrieNode[childCodes.length];
+            for (int head = 0; head < nodes.size(); head++) {
+                TrieNode node = nodes.get(head);
+                int state = states[head];
+                nodes.set(head, null);
+                if (node.isEndOfPrefix()) {
+                    terminal[state >>> 6] |= 1L << state;
+                }
+                int count = node.getChildCount();
+                if (count == 0) {
+                    continue;
+                }
+                int[] index = {0};
+                node.forEachChild((key, child) -> {
+                    childCodes[index[0]] = charCodes[key];
+                    children[index[0]++] = child;
+                });
+
+                int stateBase = findBase(childCodes, count);
+                base[state] = stateBase;
+                for (int i = 0; i < count; i++) {
+                    int childState = stateBase + childCodes[i];
+                    occupy(childState, state);
+                    if (nodes.size() == states.length) {
+                        states = Arrays.copyOf(states, states.length * 2);
+                    }
+                    states[nodes.size()] = childState;
+                    nodes.add(children[i]);
+                }
+            }
+            DoubleArrayTriePrefixMatcher.this.base = Arrays.copyOf(base, size);
+            DoubleArrayTriePrefixMatcher.this.check = Arrays.copyOf(check, size);
+            DoubleArrayTriePrefixMatcher.this.terminal = Arrays.copyOf(terminal, (size + 63) >>> 6);
+        }
+
+        private int findBase(int[] codes, int count) {
+            // Only free slots are visited as candidates for the first child, occupied runs are skipped.
+            int position = findFree(codes[0] + 1);
+            while (!fits(position - codes[0], codes, count)) {
+                position = findFree(position + 1);
+            }
+            return position - codes[0];
+        }
+
+        private boolean fits(int candidate, int[] codes, int count) {
+            ensureCapacity(candidate + codes[count - 1] + 1);
+            for (int i = 1; i < count; i++) {
+                if (check[candidate + codes[i]] != FREE) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int findFree(int slot) {
+            ensureCapacity(slot + 1);
+            int free = slot;
+            while (nextFree[free] != free) {
+                free = nextFree[free];
+            }
+            // Path compression keeps later searches over the same occupied run short.
+            while (nextFree[slot] != free) {
+                int next = nextFree[slot];
+                nextFree[slot] = free;
+                slot = next;
+            }
+            return free;
+        }
+
+        private void occupy(int slot, int parent) {
+            ensureCapacity(slot + 2);
+            check[slot] = parent;
+            nextFree[slot] = slot + 1;
+            size = Math.max(size, slot + 1);
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= check.length) {
+                return;
+            }
+            int capacity = Math.max(required, check.length + (check.length >> 1));
+            int oldLength = check.length;
+            base = Arrays.copyOf(base, capacity);
+            check = Arrays.copyOf(check, capacity);
+            Arrays.fill(check, oldLength, capacity, FREE);
+            nextFree = Arrays.copyOf(nextFree, capacity);
+            for (int slot = oldLength; slot < capacity; slot++) {
+                nextFree[slot] = slot;
+            }
+            terminal = Arrays.copyOf(terminal, (capacity + 63) >>> 6);
+        }
+    }
+}
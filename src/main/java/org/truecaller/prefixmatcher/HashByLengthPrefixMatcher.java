@@ -0,0 +1,189 @@
+package org.truecaller.prefixmatcher;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements the PrefixMatcher interface with one hash table per prefix length, probed from the longest
+ * length down, as in IP longest-prefix-match tables. Built for large sets of short prefixes such as
+ * telecom number ranges: a lookup costs one probe per distinct prefix length, whatever the depth a Trie
+ * would have to walk, and lengths with no prefixes are skipped through a bit mask.
+ * Each prefix is packed into a long, 8 bits per character, so prefixes must be 1 to 8 characters long
+ * and contain only characters up to U+00FF.
+ */
+public class HashByLengthPrefixMatcher implements PrefixMatcher {
+    public static final int MAX_PREFIX_LENGTH = 8;
+
+    private static final int BITS_PER_CHAR = 8;
+    private static final char MAX_CHAR = 0xFF;
+
+    // tables[length] holds the packed prefixes of that length in an open-addressed table, or is empty if there are none.
+    private long[][] tables = new long[MAX_PREFIX_LENGTH + 1][0];
+    // Bit n is set if any prefix has length n.
+    private int presentLengths;
+    // Bit n is set if the prefix of n NUL characters is present; its packed key is 0, which marks an empty slot.
+    private int zeroKeyLengths;
+    private boolean loaded;
+
+    /**
+     * Builds the per-length tables. They are immutable, so this may only be called once per instance.
+     * @param prefixes - All the prefixes.
+     * @throws IllegalArgumentException if a prefix is empty, longer than 8 characters, or has a character above U+00FF.
+     */
+    @Override
+    public void loadPrefixes(List<String> prefixes) {
+        if (loaded) {
+            throw new IllegalStateException("Hash-by-length matcher is immutable and has already been loaded");
+        }
+        int[] counts = new int[MAX_PREFIX_LENGTH + 1];
+        for (String prefix : prefixes) {
+            checkSupported(prefix);
+            counts[prefix.length()]++;
+        }
+
+        long[][] newTables = new long[MAX_PREFIX_LENGTH + 1][];
+        for (int length = 0; length <= MAX_PREFIX_LENGTH; length++) {
+            // Keep the load factor at or below one half so probe sequences stay short.
+            newTables[length] = new long[counts[length] == 0 ? 0 : Integer.highestOneBit(counts[length]) << 2];
+        }
+        int lengths = 0;
+        int zeroKeys = 0;
+        for (String prefix : prefixes) {
+            int length = prefix.length();
+            long key = pack(prefix, 0, length);
+            lengths |= 1 << length;
+            if (key == 0) {
+                zeroKeys |= 1 << length;
+            } else {
+                insert(newTables[length], key);
+            }
+        }
+
+        this.tables = newTables;
+        this.presentLengths = lengths;
+        this.zeroKeyLengths = zeroKeys;
+        this.loaded = true;
+    }
+
+    @Override
+    public String findLongestMatchingPrefix(String inputString) {
+        int length = findLongestMatchLength(inputString);
+        return length == 0 ? "" : inputString.substring(0, length);
+    }
+
+    @Override
+    public int findLongestMatchLength(String inputString) {
+        return findLongestMatchLength(inputString, 0, inputString.length());
+    }
+
+    @Override
+    public int findLongestMatchLength(CharSequence input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        int usable = usableLength(input, offset, length);
+        long packed = pack(input, offset, usable);
+
+        // Candidate lengths 1..usable, longest first.
+        for (int candidates = presentLengths & ((2 << usable) - 2); candidates != 0; ) {
+            int prefixLength = 31 - Integer.numberOfLeadingZeros(candidates);
+            if (contains(prefixLength, packed >>> BITS_PER_CHAR * (usable - prefixLength))) {
+                return prefixLength;
+            }
+            candidates &= ~(1 << prefixLength);
+        }
+        return 0;
+    }
+
+    @Override
+    public void findAllMatchingPrefixes(CharSequence input, int offset, int length, IntConsumer matchLengths) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        int usable = usableLength(input, offset, length);
+        long packed = pack(input, offset, usable);
+
+        // Candidate lengths 1..usable, shortest first.
+        for (int candidates = presentLengths & ((2 << usable) - 2); candidates != 0; candidates &= candidates - 1) {
+            int prefixLength = Integer.numberOfTrailingZeros(candidates);
+            if (contains(prefixLength, packed >>> BITS_PER_CHAR * (usable - prefixLength))) {
+                matchLengths.accept(prefixLength);
+            }
+        }
+    }
+
+    /**
+     * @return The distinct prefix lengths present, one bit per length.
+     */
+    public int getPresentLengths() {
+        return presentLengths;
+    }
+
+    private boolean contains(int length, long key) {
+        if (key == 0) {
+            return (zeroKeyLengths & (1 << length)) != 0;
+        }
+        long[] table = tables[length];
+        int mask = table.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            long current = table[slot];
+            if (current == key) {
+                return true;
+            }
+            if (current == 0) {
+                return false;
+            }
+        }
+    }
+
+    private static void insert(long[] table, long key) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (table[slot] != 0) {
+            if (table[slot] == key) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = key;
+    }
+
+    /**
+     * Number of leading characters of the region that a prefix could cover: at most 8, and none from the first
+     * character above U+00FF on, since no prefix contains one.
+     */
+    private static int usableLength(CharSequence input, int offset, int length) {
+        int limit = Math.min(length, MAX_PREFIX_LENGTH);
+        for (int i = 0; i < limit; i++) {
+            if (input.charAt(offset + i) > MAX_CHAR) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Packs the characters big-endian, so the key of a shorter prefix is the packed value shifted right.
+     */
+    private static long pack(CharSequence chars, int offset, int length) {
+        long packed = 0;
+        for (int i = 0; i < length; i++) {
+            packed = packed << BITS_PER_CHAR | chars.charAt(offset + i);
+        }
+        return packed;
+    }
+
+    private static void checkSupported(String prefix) {
+        if (prefix.isEmpty() || prefix.length() > MAX_PREFIX_LENGTH) {
+            throw new IllegalArgumentException("Prefix length must be 1 to " + MAX_PREFIX_LENGTH + ": '" + prefix + "'");
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (prefix.charAt(i) > MAX_CHAR) {
+                throw new IllegalArgumentException("Prefix has a character above U+00FF: '" + prefix + "'");
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        // Fold the high bits in, so keys differing only in their leading characters spread across the table.
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ h >>> 32);
+    }
+}
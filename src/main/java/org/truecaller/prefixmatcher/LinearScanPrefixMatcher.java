@@ -0,0 +1,198 @@
+package org.truecaller.prefixmatcher;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements the PrefixMatcher interface by scanning all prefixes, longest first.
+ * For small prefix sets this beats a Trie: the prefixes are packed into a few flat arrays,
+ * and the first four characters of every prefix are compared against the input in a single
+ * masked long comparison, so most candidates are rejected without touching the packed characters.
+ * Loads and single-prefix updates repack the arrays and publish them in one swap, so lookups never see a partial set.
+ */
+public class LinearScanPrefixMatcher implements PrefixMatcher {
+    // Number of characters packed into a single long head word (16 bits each).
+    private static final int HEAD_CHARS = 4;
+
+    private volatile Packed table = Packed.of(List.of());
+
+    /**
+     * Loads the prefixes, merging them with any previously loaded set and repacking the arrays.
+     * @param prefixes - All the prefixes.
+     */
+    @Override
+    public synchronized void loadPrefixes(List<String> prefixes) {
+        Set<String> unique = new LinkedHashSet<>(table.prefixes());
+        unique.addAll(prefixes);
+        table = Packed.of(unique);
+    }
+
+    @Override
+    public String findLongestMatchingPrefix(String inputString) {
+        int length = findLongestMatchLength(inputString);
+        return length == 0 ? "" : inputString.substring(0, length);
+    }
+
+    /**
+     * Returns the length of the first (and therefore longest) prefix that matches the input.
+     */
+    @Override
+    public int findLongestMatchLength(String inputString) {
+        return findLongestMatchLength(inputString, 0, inputString.length());
+    }
+
+    /**
+     * Returns the length of the first (and therefore longest) prefix that matches the region.
+     */
+    @Override
+    public int findLongestMatchLength(CharSequence input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        Packed current = table;
+        int[] lengths = current.lengths;
+        long inputHead = head(input, offset, length);
+
+        for (int i = 0; i < lengths.length; i++) {
+            int prefixLength = lengths[i];
+            if (prefixLength > length || (inputHead & current.headMasks[i]) != current.heads[i]) {
+                continue;
+            }
+            if (current.tailMatches(input, offset, current.offsets[i], prefixLength)) {
+                return prefixLength;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Checks every prefix, shortest first, by walking the length-ordered arrays backwards.
+     */
+    @Override
+    public void findAllMatchingPrefixes(CharSequence input, int offset, int length, IntConsumer matchLengths) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        Packed current = table;
+        int[] lengths = current.lengths;
+        long inputHead = head(input, offset, length);
+
+        for (int i = lengths.length - 1; i >= 0; i--) {
+            int prefixLength = lengths[i];
+            if (prefixLength > length) {
+                break;
+            }
+            if ((inputHead & current.headMasks[i]) == current.heads[i]
+                    && current.tailMatches(input, offset, current.offsets[i], prefixLength)) {
+                matchLengths.accept(prefixLength);
+            }
+        }
+    }
+
+    /**
+     * Adds one prefix by repacking the arrays, which costs time linear in the prefix set:
+     * cheap at the sizes this matcher is chosen for. Lookups keep reading the previous arrays until the swap.
+     */
+    @Override
+    public synchronized void addPrefix(String prefix) {
+        Set<String> unique = new LinkedHashSet<>(table.prefixes());
+        if (unique.add(prefix)) {
+            table = Packed.of(unique);
+        }
+    }
+
+    /**
+     * Removes one prefix by repacking the arrays without it.
+     */
+    @Override
+    public synchronized boolean removePrefix(String prefix) {
+        Set<String> unique = new LinkedHashSet<>(table.prefixes());
+        if (!unique.remove(prefix)) {
+            return false;
+        }
+        table = Packed.of(unique);
+        return true;
+    }
+
+    /**
+     * Packs up to the first HEAD_CHARS characters into a long, 16 bits per character.
+     */
+    private static long head(CharSequence value, int offset, int length) {
+        long head = 0;
+        int limit = Math.min(length, HEAD_CHARS);
+        for (int i = 0; i < limit; i++) {
+            head |= (long) value.charAt(offset + i) << (16 * i);
+        }
+        return head;
+    }
+
+    private static long headMask(int length) {
+        return length >= HEAD_CHARS ? -1L : (1L << (16 * length)) - 1;
+    }
+
+    /**
+     * The packed prefix arrays. Never modified once built, so a lookup reading one instance sees a complete set.
+     */
+    private static final class Packed {
+        // All prefix characters, back to back, ordered by descending prefix length.
+        private final char[] chars;
+        private final int[] offsets;
+        private final int[] lengths;
+        // The first HEAD_CHARS characters of every prefix, and the mask selecting them from an input head.
+        private final long[] heads;
+        private final long[] headMasks;
+
+        private Packed(char[] chars, int[] offsets, int[] lengths, long[] heads, long[] headMasks) {
+            this.chars = chars;
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.heads = heads;
+            this.headMasks = headMasks;
+        }
+
+        private static Packed of(Collection<String> prefixes) {
+            List<String> sorted = prefixes.stream()
+                    .filter(prefix -> !prefix.isEmpty())
+                    .sorted(Comparator.comparingInt(String::length).reversed().thenComparing(Comparator.naturalOrder()))
+                    .toList();
+
+            int count = sorted.size();
+            int totalChars = sorted.stream().mapToInt(String::length).sum();
+            char[] packed = new char[totalChars];
+            int[] offsets = new int[count];
+            int[] lengths = new int[count];
+            long[] heads = new long[count];
+            long[] headMasks = new long[count];
+
+            int offset = 0;
+            for (int i = 0; i < count; i++) {
+                String prefix = sorted.get(i);
+                prefix.getChars(0, prefix.length(), packed, offset);
+                offsets[i] = offset;
+                lengths[i] = prefix.length();
+                heads[i] = head(prefix, 0, prefix.length());
+                headMasks[i] = headMask(prefix.length());
+                offset += prefix.length();
+            }
+            return new Packed(packed, offsets, lengths, heads, headMasks);
+        }
+
+        private boolean tailMatches(CharSequence input, int inputOffset, int offset, int length) {
+            for (int j = HEAD_CHARS; j < length; j++) {
+                if (chars[offset + j] != input.charAt(inputOffset + j)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private List<String> prefixes() {
+            String all = new String(chars);
+            return IntStream.range(0, lengths.length)
+                    .mapToObj(i -> all.substring(offsets[i], offsets[i] + lengths[i]))
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.truecaller.prefixmatcher;
+
+import org.truecaller.models.trie.TrieNode;
+import org.truecaller.models.trie.TrieSnapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements the PrefixMatcher interface on top of a TrieSnapshot file mapped into memory.
+ * Lookups walk the mapped bytes directly, so opening a compiled snapshot costs no parsing and no heap,
+ * and JVMs on the same host mapping the same file share its pages.
+ */
+public class MappedTriePrefixMatcher implements PrefixMatcher {
+
+    private final Path snapshotFile;
+    private ByteBuffer snapshot;
+
+    /**
+     * Creates a matcher whose loadPrefixes compiles the prefixes into the given snapshot file and maps it.
+     * @param snapshotFile - Where the compiled snapshot is written.
+     */
+    public MappedTriePrefixMatcher(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Maps a snapshot file compiled earlier, without rebuilding anything.
+     * @param snapshotFile - A file written by compile or loadPrefixes.
+     * @return A loaded matcher; further loadPrefixes calls are rejected.
+     */
+    public static MappedTriePrefixMatcher open(Path snapshotFile) {
+        MappedTriePrefixMatcher matcher = new MappedTriePrefixMatcher(snapshotFile);
+        matcher.snapshot = map(snapshotFile);
+        return matcher;
+    }
+
+    /**
+     * Offline compile step: builds the minimal trie for the prefixes and writes it as a snapshot file.
+     * Identical suffix subtrees are stored once, which keeps the file, and the pages it occupies, small.
+     */
+    public static void compile(Collection<String> prefixes, Path snapshotFile) {
+        TrieNode root = SortedTrieBuilder.build(prefixes);
+        try {
+            TrieSnapshot.write(root, snapshotFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write trie snapshot to " + snapshotFile, e);
+        }
+    }
+
+    /**
+     * Compiles the prefixes into the snapshot file and maps it. The mapped trie is immutable,
+     * so this may only be called once per instance. Stream and file loads collect the lines and come here too,
+     * so every snapshot is built by the same minimal builder as compile.
+     * @param prefixes - All the prefixes.
+     */
+    @Override
+    public void loadPrefixes(List<String> prefixes) {
+        checkNotLoaded();
+        compile(prefixes, snapshotFile);
+        this.snapshot = map(snapshotFile);
+    }
+
+    private void checkNotLoaded() {
+        if (snapshot != null) {
+            throw new IllegalStateException("Mapped trie is immutable and has already been loaded");
+        }
+    }
+
+    @Override
+    public String findLongestMatchingPrefix(String inputString) {
+        int length = findLongestMatchLength(inputString);
+        return length == 0 ? "" : inputString.substring(0, length);
+    }
+
+    @Override
+    public int findLongestMatchLength(String inputString) {
+        return findLongestMatchLength(inputString, 0, inputString.length());
+    }
+
+    @Override
+    public int findLongestMatchLength(CharSequence input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        // Nothing is mapped until a snapshot has been loaded or opened.
+        return snapshot == null ? 0 : TrieSnapshot.findLongestMatchLength(snapshot, input, offset, length);
+    }
+
+    @Override
+    public void findAllMatchingPrefixes(CharSequence input, int offset, int length, IntConsumer matchLengths) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        if (snapshot != null) {
+            TrieSnapshot.findAllMatchingPrefixes(snapshot, input, offset, length, matchLengths);
+        }
+    }
+
+    private static ByteBuffer map(Path snapshotFile) {
+        try {
+            return TrieSnapshot.map(snapshotFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map trie snapshot " + snapshotFile, e);
+        }
+    }
+}
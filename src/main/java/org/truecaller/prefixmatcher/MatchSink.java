@@ -0,0 +1,14 @@
+package org.truecaller.prefixmatcher;
+
+/**
+ * Receives the pattern occurrences found while scanning a text. Called once per occurrence,
+ * so a caller can count, collect or act on matches without any result objects being allocated.
+ */
+@FunctionalInterface
+public interface MatchSink {
+    /**
+     * @param start Index in the scanned text of the first character of the occurrence.
+     * @param length Number of characters in the occurrence.
+     */
+    void onMatch(int start, int length);
+}
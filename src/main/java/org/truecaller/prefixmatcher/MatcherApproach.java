@@ -3,5 +3,15 @@ package org.truecaller.prefixmatcher;
 public enum MatcherApproach {
 
     TRIE,
-    LINEAR_SCAN
+    LINEAR_SCAN,
+    DOUBLE_ARRAY,
+    RADIX,
+    // Trie encoded into off-heap memory, up to 2 GiB; returned when the collector reclaims the buffer, not on shutdown().
+    OFF_HEAP,
+    // Minimal automaton sharing identical suffixes; the most compact on-heap engine.
+    DAWG,
+    // Automaton with failure links; also finds prefixes at any offset via AhoCorasickPrefixMatcher.scan().
+    AHO_CORASICK,
+    // Picks LINEAR_SCAN for small prefix sets and TRIE otherwise.
+    AUTO
 }
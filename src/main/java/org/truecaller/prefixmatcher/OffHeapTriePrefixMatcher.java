@@ -0,0 +1,124 @@
+package org.truecaller.prefixmatcher;
+
+import org.truecaller.models.trie.TrieNode;
+import org.truecaller.models.trie.TrieSnapshot;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements the PrefixMatcher interface with the trie stored outside the Java heap.
+ * The prefixes are encoded in the TrieSnapshot layout into a direct buffer, so the heap only holds
+ * the buffer handle and the garbage collector never has to trace the nodes, however many there are.
+ * The snapshot layout uses int offsets, so the encoded trie is capped at 2 GiB; a larger prefix set is
+ * rejected when it is loaded, before any off-heap memory is allocated.
+ * The memory belongs to the direct buffer, so it is returned when the collector reclaims the buffer,
+ * not when the matcher is closed.
+ */
+public class OffHeapTriePrefixMatcher implements PrefixMatcher {
+    // Tracks when the buffers are reclaimed, so getOffHeapBytes() reports memory that is actually still held.
+    private static final Cleaner RECLAIM_TRACKER = Cleaner.create();
+
+    private final AtomicLong heldBytes = new AtomicLong();
+    private volatile ByteBuffer snapshot;
+    private volatile boolean loaded;
+    // Set only by close(), before the buffer is dropped, so a lookup finding no buffer can tell
+    // a closed matcher from one that is still loading.
+    private volatile boolean closed;
+
+    /**
+     * Encodes the prefixes into off-heap memory. The encoded trie is immutable,
+     * so this may only be called once per instance.
+     * @param prefixes - All the prefixes.
+     */
+    @Override
+    public void loadPrefixes(List<String> prefixes) {
+        checkNotLoaded();
+        // The node graph is only a transient build structure; it becomes garbage once encoded. Building it
+        // minimal, as snapshot compile does, shares identical suffixes and so keeps the peak heap of a load
+        // well below that of a full Trie. Stream and file loads collect the lines and come here too.
+        load(SortedTrieBuilder.build(prefixes));
+    }
+
+    private void checkNotLoaded() {
+        if (loaded) {
+            throw new IllegalStateException("Off-heap trie is immutable and has already been loaded");
+        }
+    }
+
+    private void load(TrieNode root) {
+        ByteBuffer encoded;
+        try {
+            encoded = TrieSnapshot.encode(root, ByteBuffer::allocateDirect);
+        } catch (IllegalStateException e) {
+            // Raised while laying the trie out, before any off-heap memory is allocated.
+            throw new IllegalStateException("Off-heap trie would exceed the 2 GiB snapshot limit;"
+                    + " split the prefix set or use an on-heap approach", e);
+        }
+        AtomicLong held = heldBytes;
+        held.set(encoded.capacity());
+        RECLAIM_TRACKER.register(encoded, () -> held.set(0));
+        this.snapshot = encoded;
+        this.loaded = true;
+    }
+
+    @Override
+    public String findLongestMatchingPrefix(String inputString) {
+        int length = findLongestMatchLength(inputString);
+        return length == 0 ? "" : inputString.substring(0, length);
+    }
+
+    @Override
+    public int findLongestMatchLength(String inputString) {
+        return findLongestMatchLength(inputString, 0, inputString.length());
+    }
+
+    @Override
+    public int findLongestMatchLength(CharSequence input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        ByteBuffer current = snapshot;
+        if (current == null) {
+            if (closed) {
+                throw new IllegalStateException("Off-heap trie has been closed");
+            }
+            return 0;
+        }
+        return TrieSnapshot.findLongestMatchLength(current, input, offset, length);
+    }
+
+    @Override
+    public void findAllMatchingPrefixes(CharSequence input, int offset, int length, IntConsumer matchLengths) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        ByteBuffer current = snapshot;
+        if (current == null) {
+            if (closed) {
+                throw new IllegalStateException("Off-heap trie has been closed");
+            }
+            return;
+        }
+        TrieSnapshot.findAllMatchingPrefixes(current, input, offset, length, matchLengths);
+    }
+
+    /**
+     * Drops the matcher's reference to the buffer and rejects any later lookup; lookups already holding
+     * the buffer finish safely. The memory is not freed here: it is returned once the last of them has
+     * finished and the collector reclaims the buffer.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        snapshot = null;
+    }
+
+    /**
+     * @return The number of bytes held outside the heap, or 0 if nothing is loaded. After close() this keeps
+     * counting the buffer until the collector has reclaimed it.
+     */
+    public long getOffHeapBytes() {
+        return heldBytes.get();
+    }
+}
@@ -0,0 +1,31 @@
+package org.truecaller.prefixmatcher;
+
+import java.util.Map;
+
+/**
+ * Matches prefixes that each carry a value (a route, carrier, region or tariff), and returns the value
+ * of the longest match directly, so callers need no second lookup keyed on the matched prefix.
+ * @param <V> The type of value attached to each prefix.
+ */
+public interface PayloadPrefixMatcher<V> {
+    /**
+     * Loads the prefixes together with their values.
+     * @param entries Every prefix mapped to its value; values must not be null.
+     */
+    void loadPrefixes(Map<String, ? extends V> entries);
+
+    /**
+     * Finds the value attached to the longest prefix of the input string.
+     * @return The value of the longest matching prefix, or null if none is found.
+     */
+    default V findLongestMatch(String inputString) {
+        return findLongestMatch(inputString, 0, inputString.length());
+    }
+
+    /**
+     * Finds the value attached to the longest prefix of the region input[offset, offset + length).
+     * @return The value of the longest matching prefix, or null if none is found.
+     * @throws IndexOutOfBoundsException if the region lies outside the input.
+     */
+    V findLongestMatch(CharSequence input, int offset, int length);
+}
@@ -0,0 +1,109 @@
+package org.truecaller.prefixmatcher;
+
+import org.truecaller.models.trie.TrieNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Implements the PayloadPrefixMatcher interface using an immutable Trie flattened into primitive arrays,
+ * laid out like the DawgPrefixMatcher. Suffixes are not shared, since prefixes with the same tail may carry
+ * different values; instead each state holds its value inline, so a terminal state is simply one with a value.
+ * @param <V> The type of value attached to each prefix.
+ */
+public class PayloadTriePrefixMatcher<V> implements PayloadPrefixMatcher<V> {
+    private static final int ROOT = 0;
+
+    // The edges leaving state s occupy [firstEdge[s], firstEdge[s + 1]) of labels, sorted by label.
+    // States are numbered breadth-first over a tree, so edge e always leads to state e + 1.
+    private int[] firstEdge = {0, 0};
+    private char[] labels = new char[0];
+    // Value of the prefix ending at each state, or null if no prefix ends there.
+    private Object[] values = new Object[1];
+    private boolean loaded;
+
+    /**
+     * Builds the Trie for the prefixes and their values. It is immutable, so this may only be called once per instance.
+     * @param entries - Every prefix mapped to its value.
+     */
+    @Override
+    public void loadPrefixes(Map<String, ? extends V> entries) {
+        if (loaded) {
+            throw new IllegalStateException("Payload trie is immutable and has already been loaded");
+        }
+        TrieNode root = new TrieNode();
+        Map<TrieNode, V> terminals = new IdentityHashMap<>();
+        entries.forEach((prefix, value) -> {
+            Objects.requireNonNull(value, () -> "No value for prefix " + prefix);
+            TrieNode current = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                current = current.getOrCreateChild(prefix.charAt(i));
+            }
+            terminals.put(current, value);
+        });
+        flatten(root, terminals);
+        this.loaded = true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V findLongestMatch(CharSequence input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        int state = ROOT;
+        Object longestMatch = values[ROOT];
+
+        for (int i = 0; i < length; i++) {
+            int edge = Arrays.binarySearch(labels, firstEdge[state], firstEdge[state + 1], input.charAt(offset + i));
+            if (edge < 0) {
+                break;
+            }
+            state = edge + 1;
+            if (values[state] != null) {
+                longestMatch = values[state];
+            }
+        }
+        return (V) longestMatch;
+    }
+
+    /**
+     * @return The number of states in the Trie, root included.
+     */
+    public int getStateCount() {
+        return firstEdge.length - 1;
+    }
+
+    /**
+     * Numbers the nodes breadth-first, then lays out each state's edges contiguously. Every node but the root
+     * is reached by exactly one edge, and both are visited in the same order, so no target array is needed.
+     */
+    private void flatten(TrieNode root, Map<TrieNode, V> terminals) {
+        List<TrieNode> states = new ArrayList<>();
+        states.add(root);
+        int edgeCount = 0;
+        for (int state = 0; state < states.size(); state++) {
+            TrieNode node = states.get(state);
+            edgeCount += node.getChildCount();
+            node.forEachChild((key, child) -> states.add(child));
+        }
+
+        int[] first = new int[states.size() + 1];
+        char[] edgeLabels = new char[edgeCount];
+        Object[] stateValues = new Object[states.size()];
+        int[] edge = {0};
+        for (int state = 0; state < states.size(); state++) {
+            TrieNode node = states.get(state);
+            first[state] = edge[0];
+            stateValues[state] = terminals.get(node);
+            node.forEachChild((key, child) -> edgeLabels[edge[0]++] = key);
+        }
+        first[states.size()] = edgeCount;
+
+        this.firstEdge = first;
+        this.labels = edgeLabels;
+        this.values = stateValues;
+    }
+}
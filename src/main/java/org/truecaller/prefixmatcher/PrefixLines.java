@@ -0,0 +1,193 @@
+package org.truecaller.prefixmatcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams newline-delimited UTF-8 prefixes into a reusable char buffer, one line at a time,
+ * so a loader can insert each prefix without creating a String for it.
+ * Lines end at '\n', '\r' or "\r\n"; empty lines are skipped, malformed bytes decode to U+FFFD.
+ */
+final class PrefixLines {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private PrefixLines() {
+    }
+
+    /**
+     * Receives each line; the array is reused for the next line, so it must not be retained.
+     */
+    @FunctionalInterface
+    interface LineConsumer {
+        void accept(char[] chars, int length);
+    }
+
+    static void forEach(InputStream in, LineConsumer consumer) throws IOException {
+        forEach(Channels.newChannel(in), consumer);
+    }
+
+    /**
+     * Streams the lines of one region of a file, as produced by split.
+     */
+    static void forEach(FileChannel channel, Region region, LineConsumer consumer) throws IOException {
+        forEach(new RegionChannel(channel, region), consumer);
+    }
+
+    /**
+     * Splits a file into up to the requested number of regions that each start at the beginning of a line,
+     * so the regions can be parsed independently and in parallel.
+     */
+    static List<Region> split(FileChannel channel, int regions) throws IOException {
+        long size = channel.size();
+        List<Region> result = new ArrayList<>(regions);
+        long start = 0;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (int i = 1; i < regions && start < size; i++) {
+            long end = nextLineStart(channel, Math.max(start, size * i / regions), probe);
+            if (end > start) {
+                result.add(new Region(start, end));
+                start = end;
+            }
+        }
+        if (start < size) {
+            result.add(new Region(start, size));
+        }
+        return result;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read < 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    private static void forEach(ReadableByteChannel source, LineConsumer consumer) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        LineSplitter lines = new LineSplitter(consumer);
+
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            endOfInput = source.read(bytes) < 0;
+            bytes.flip();
+            CoderResult result;
+            do {
+                result = decoder.decode(bytes, chars, endOfInput);
+                lines.drain(chars);
+            } while (result.isOverflow());
+            bytes.compact();
+        }
+        while (decoder.flush(chars).isOverflow()) {
+            lines.drain(chars);
+        }
+        lines.drain(chars);
+        lines.finish();
+    }
+
+    /**
+     * Accumulates decoded characters and hands every completed line to the consumer.
+     */
+    private static final class LineSplitter {
+        private final LineConsumer consumer;
+        private char[] line = new char[256];
+        private int length;
+
+        private LineSplitter(LineConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        private void drain(CharBuffer chars) {
+            chars.flip();
+            while (chars.hasRemaining()) {
+                char ch = chars.get();
+                if (ch == '\n' || ch == '\r') {
+                    finish();
+                } else {
+                    if (length == line.length) {
+                        line = Arrays.copyOf(line, length * 2);
+                    }
+                    line[length++] = ch;
+                }
+            }
+            chars.clear();
+        }
+
+        private void finish() {
+            if (length > 0) {
+                consumer.accept(line, length);
+                length = 0;
+            }
+        }
+    }
+
+    /**
+     * A byte range [start, end) of a file.
+     */
+    record Region(long start, long end) {
+    }
+
+    /**
+     * Reads one region through positional reads, so several regions of the same channel can be read concurrently.
+     */
+    private static final class RegionChannel implements ReadableByteChannel {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        private RegionChannel(FileChannel channel, Region region) {
+            this.channel = channel;
+            this.position = region.start();
+            this.end = region.end();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            ByteBuffer window = dst.slice();
+            window.limit((int) Math.min(window.remaining(), end - position));
+            int read = channel.read(window, position);
+            if (read > 0) {
+                position += read;
+                dst.position(dst.position() + read);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
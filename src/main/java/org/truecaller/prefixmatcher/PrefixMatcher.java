@@ -1,22 +1,139 @@
 package org.truecaller.prefixmatcher;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.IntConsumer;
 
 /**
  * Interface defining the contract for any prefix matching algorithm.
  * This adheres to the Dependency Inversion Principle (DIP).
  */
-public interface PrefixMatcher {
+public interface PrefixMatcher extends AutoCloseable {
     /**
      * Loads the configuration (list of prefixes) from a specified source.
      * @param prefixes List of actual prefixes.
      */
     void loadPrefixes(List<String> prefixes);
 
+    /**
+     * Loads newline-delimited, UTF-8 encoded prefixes from a stream. Empty lines are ignored.
+     * The default collects the lines and delegates to loadPrefixes(List); matchers that can
+     * build straight from the decoded characters override it to avoid a String per prefix.
+     * @param in The stream to read; it is not closed.
+     */
+    default void loadPrefixes(InputStream in) throws IOException {
+        List<String> prefixes = new ArrayList<>();
+        PrefixLines.forEach(in, (chars, length) -> prefixes.add(new String(chars, 0, length)));
+        loadPrefixes(prefixes);
+    }
+
+    /**
+     * Loads newline-delimited, UTF-8 encoded prefixes from a file. Empty lines are ignored.
+     * @param prefixFile Path to the prefix file.
+     */
+    default void loadPrefixes(Path prefixFile) throws IOException {
+        try (InputStream in = Files.newInputStream(prefixFile)) {
+            loadPrefixes(in);
+        }
+    }
+
     /**
      * Finds the longest matching prefix for a given input string.
      * @param inputString The string to match against.
      * @return The longest matching prefix, or an empty string if none is found.
      */
     String findLongestMatchingPrefix(String inputString);
+
+    /**
+     * Finds the length of the longest matching prefix without materialising it as a String.
+     * @param inputString The string to match against.
+     * @return The number of leading characters that form the longest matching prefix, or 0 if none is found.
+     */
+    default int findLongestMatchLength(String inputString) {
+        return findLongestMatchingPrefix(inputString).length();
+    }
+
+    /**
+     * Finds the length of the longest prefix matching the region input[offset, offset + length), so callers holding
+     * text in a StringBuilder, a CharBuffer or a larger line buffer can match in place without copying it.
+     * The default copies the region; the built-in matchers walk the CharSequence directly.
+     * @param input The text holding the region to match against.
+     * @param offset Index of the first character of the region.
+     * @param length Number of characters in the region.
+     * @return The number of leading characters of the region that form the longest matching prefix, or 0 if none is found.
+     * @throws IndexOutOfBoundsException if the region lies outside the input.
+     */
+    default int findLongestMatchLength(CharSequence input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        return findLongestMatchLength(input.subSequence(offset, offset + length).toString());
+    }
+
+    /**
+     * Reports every prefix of the region input[offset, offset + length) that is a loaded prefix, such as
+     * "a", "app" and "apple" for "applepie", by passing each match length to the sink in ascending order.
+     * The built-in matchers collect every prefix along a single walk and allocate nothing per call,
+     * so a caller can keep one sink and reuse it across lookups. The default is slower and does allocate:
+     * it narrows the region to each shorter match in turn and buffers the lengths to report them shortest first.
+     * @param input The text holding the region to match against.
+     * @param offset Index of the first character of the region.
+     * @param length Number of characters in the region.
+     * @param matchLengths Receives the length of each matching prefix, shortest first.
+     * @throws IndexOutOfBoundsException if the region lies outside the input.
+     */
+    default void findAllMatchingPrefixes(CharSequence input, int offset, int length, IntConsumer matchLengths) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        int[] found = new int[length];
+        int count = 0;
+        for (int match = findLongestMatchLength(input, offset, length); match > 0;
+             match = findLongestMatchLength(input, offset, match - 1)) {
+            found[count++] = match;
+        }
+        while (count > 0) {
+            matchLengths.accept(found[--count]);
+        }
+    }
+
+    /**
+     * Finds every loaded prefix of the input string.
+     * @param inputString The string to match against.
+     * @return The matching prefixes, shortest first, or an empty list if none is found.
+     */
+    default List<String> findAllMatchingPrefixes(String inputString) {
+        List<String> matches = new ArrayList<>();
+        findAllMatchingPrefixes(inputString, 0, inputString.length(), length -> matches.add(inputString.substring(0, length)));
+        return matches;
+    }
+
+    /**
+     * Adds a single prefix to an already loaded matcher while lookups continue to run.
+     * @param prefix The prefix to add.
+     * @throws UnsupportedOperationException if the matcher is immutable once loaded.
+     */
+    default void addPrefix(String prefix) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support incremental updates");
+    }
+
+    /**
+     * Removes a single prefix from an already loaded matcher while lookups continue to run.
+     * @param prefix The prefix to remove.
+     * @return true if the prefix was present and has been removed.
+     * @throws UnsupportedOperationException if the matcher is immutable once loaded.
+     */
+    default boolean removePrefix(String prefix) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support incremental updates");
+    }
+
+    /**
+     * Drops the matcher's hold on anything it keeps outside the Java heap; later lookups may be rejected.
+     * Memory backing a direct buffer is returned when the collector reclaims the buffer, not by this call.
+     * No-op for on-heap matchers.
+     */
+    @Override
+    default void close() {
+    }
 }
@@ -0,0 +1,158 @@
+package org.truecaller.prefixmatcher;
+
+import org.truecaller.models.trie.RadixNode;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements the PrefixMatcher interface using a path-compressed (radix / Patricia) Trie.
+ * Each edge carries a whole substring, so long prefixes with mostly unique tails cost one node and one
+ * pointer hop per branch instead of per character. A String input compares each edge in one regionMatches
+ * call, which the JDK runs as a vectorised mismatch; other CharSequences are compared one char at a time.
+ */
+public class RadixTriePrefixMatcher implements PrefixMatcher {
+    private final RadixNode root;
+
+    public RadixTriePrefixMatcher() {
+        this.root = new RadixNode("");
+    }
+
+    /**
+     * Helper method to insert a single prefix, splitting an edge where the prefix diverges from it.
+     */
+    private void insert(String prefix) {
+        RadixNode current = root;
+        int position = 0;
+
+        while (position < prefix.length()) {
+            RadixNode child = current.getChild(prefix.charAt(position));
+            if (child == null) {
+                RadixNode leaf = new RadixNode(prefix.substring(position));
+                leaf.setEndOfPrefix(true);
+                current.putChild(leaf);
+                return;
+            }
+
+            String label = child.getLabel();
+            int common = commonPrefixLength(label, prefix, position);
+            if (common < label.length()) {
+                // Split the edge: the shared part becomes a new intermediate node.
+                RadixNode split = new RadixNode(label.substring(0, common));
+                child.setLabel(label.substring(common));
+                split.putChild(child);
+                current.putChild(split);
+                child = split;
+            }
+            current = child;
+            position += common;
+        }
+        current.setEndOfPrefix(true);
+    }
+
+    private static int commonPrefixLength(String label, String prefix, int offset) {
+        int limit = Math.min(label.length(), prefix.length() - offset);
+        int i = 0;
+        while (i < limit && label.charAt(i) == prefix.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Loads prefixes, required by the PrefixMatcher interface.
+     * @param prefixes - All the prefixes.
+     */
+    @Override
+    public void loadPrefixes(List<String> prefixes) {
+        for (String prefix : prefixes) {
+            insert(prefix);
+        }
+    }
+
+    @Override
+    public String findLongestMatchingPrefix(String inputString) {
+        int length = findLongestMatchLength(inputString);
+        return length == 0 ? "" : inputString.substring(0, length);
+    }
+
+    /**
+     * Follows whole edge labels down the tree and remembers the end of the deepest terminal node.
+     * This is a read-only operation and supports concurrency.
+     */
+    @Override
+    public int findLongestMatchLength(String inputString) {
+        return findLongestMatchLength(inputString, 0, inputString.length());
+    }
+
+    @Override
+    public int findLongestMatchLength(CharSequence input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        RadixNode current = root;
+        int position = 0;
+        int longestMatch = 0;
+
+        while (position < length) {
+            current = current.getChild(input.charAt(offset + position));
+            if (current == null) {
+                break;
+            }
+
+            String label = current.getLabel();
+            if (!labelMatches(input, offset + position, length - position, label)) {
+                break;
+            }
+            position += label.length();
+
+            if (current.isEndOfPrefix()) {
+                longestMatch = position;
+            }
+        }
+        return longestMatch;
+    }
+
+    @Override
+    public void findAllMatchingPrefixes(CharSequence input, int offset, int length, IntConsumer matchLengths) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        RadixNode current = root;
+        int position = 0;
+
+        while (position < length) {
+            current = current.getChild(input.charAt(offset + position));
+            if (current == null) {
+                break;
+            }
+
+            String label = current.getLabel();
+            if (!labelMatches(input, offset + position, length - position, label)) {
+                break;
+            }
+            position += label.length();
+
+            if (current.isEndOfPrefix()) {
+                matchLengths.accept(position);
+            }
+        }
+    }
+
+    /**
+     * Checks that the whole edge label occurs in the input at the given index, within the remaining characters.
+     */
+    private static boolean labelMatches(CharSequence input, int index, int remaining, String label) {
+        if (label.length() > remaining) {
+            return false;
+        }
+        if (input instanceof String string) {
+            // The first character already selected this child.
+            return string.regionMatches(index + 1, label, 1, label.length() - 1);
+        }
+        for (int i = 1; i < label.length(); i++) {
+            // The first character already selected this child.
+            if (input.charAt(index + i) != label.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,137 @@
+package org.truecaller.prefixmatcher;
+
+import org.truecaller.models.trie.TrieNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a minimal Trie in one pass over the prefixes in sorted order (Daciuk et al., incremental construction
+ * of minimal acyclic automata). Once a branch can no longer grow it is checked against a register of finished
+ * nodes, and identical suffix subtrees are replaced by a single shared node.
+ * The result is a DAG, so its nodes must never be mutated in place; TriePrefixMatcher only changes published
+ * nodes through copy-on-write, and TrieSnapshot writes every shared node once.
+ */
+final class SortedTrieBuilder {
+
+    // Finished nodes, keyed by their terminal flag and (already shared) children.
+    private final Map<Signature, TrieNode> register = new HashMap<>();
+    // Nodes along the previously added prefix: path[i] is reached after its first i characters.
+    private final List<TrieNode> path = new ArrayList<>();
+    private String previous = "";
+
+    SortedTrieBuilder() {
+        path.add(new TrieNode());
+    }
+
+    /**
+     * Sorts a copy of the prefixes and builds the minimal Trie for them.
+     */
+    static TrieNode build(Collection<String> prefixes) {
+        String[] sorted = prefixes.toArray(new String[0]);
+        Arrays.parallelSort(sorted);
+        SortedTrieBuilder builder = new SortedTrieBuilder();
+        for (String prefix : sorted) {
+            builder.add(prefix);
+        }
+        return builder.finish();
+    }
+
+    /**
+     * Adds the next prefix; prefixes must arrive in ascending String order, duplicates are ignored.
+     */
+    void add(String prefix) {
+        if (prefix.compareTo(previous) < 0) {
+            throw new IllegalArgumentException("Prefixes must be added in sorted order: \"" + prefix + "\" after \"" + previous + "\"");
+        }
+        int common = 0;
+        int limit = Math.min(previous.length(), prefix.length());
+        while (common < limit && previous.charAt(common) == prefix.charAt(common)) {
+            common++;
+        }
+        // Everything below the shared part of the previous prefix is final now.
+        minimize(common);
+
+        TrieNode current = path.get(common);
+        for (int i = common; i < prefix.length(); i++) {
+            TrieNode child = new TrieNode();
+            // Sorted input means each new child has the largest key so far, so this appends.
+            current.putChild(prefix.charAt(i), child);
+            path.add(child);
+            current = child;
+        }
+        current.setEndOfPrefix(true);
+        previous = prefix;
+    }
+
+    /**
+     * Minimises the remaining branch and returns the root.
+     */
+    TrieNode finish() {
+        minimize(0);
+        return path.get(0);
+    }
+
+    /**
+     * Replaces each node on the previous prefix's path below the given depth, deepest first,
+     * with its registered equivalent, registering it when it is the first of its kind.
+     */
+    private void minimize(int depth) {
+        for (int i = path.size() - 1; i > depth; i--) {
+            TrieNode node = path.remove(i);
+            TrieNode equivalent = register.putIfAbsent(new Signature(node), node);
+            if (equivalent != null) {
+                path.get(i - 1).putChild(previous.charAt(i - 1), equivalent);
+            }
+        }
+    }
+
+    /**
+     * Structural identity of a finished node. Its children are already shared, so comparing them by reference suffices.
+     */
+    private static final class Signature {
+        private final boolean endOfPrefix;
+        private final char[] keys;
+        private final TrieNode[] children;
+        private final int hash;
+
+        private Signature(TrieNode node) {
+            this.endOfPrefix = node.isEndOfPrefix();
+            this.keys = new char[node.getChildCount()];
+            this.children = new TrieNode[keys.length];
+            int[] index = {0};
+            node.forEachChild((key, child) -> {
+                keys[index[0]] = key;
+                children[index[0]++] = child;
+            });
+            int h = endOfPrefix ? 1 : 0;
+            for (int i = 0; i < keys.length; i++) {
+                h = 31 * (31 * h + keys[i]) + System.identityHashCode(children[i]);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Signature that) || hash != that.hash || endOfPrefix != that.endOfPrefix
+                    || !Arrays.equals(keys, that.keys)) {
+                return false;
+            }
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] != that.children[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -2,39 +2,275 @@ package org.truecaller.prefixmatcher;
 
 import org.truecaller.models.trie.TrieNode;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Serial;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.Objects;
+import java.util.function.IntConsumer;
 
 /**
  * Implements the PrefixMatcher interface using a Trie (Prefix Tree) for efficient lookup.
  * This is the default and preferred implementation for performance.
+ * Updates are copy-on-write: a writer clones the nodes along the affected path and publishes
+ * a new root through a volatile write, so readers never lock and never see a half-applied update.
  */
 public class TriePrefixMatcher implements PrefixMatcher {
-    private final TrieNode root;
+    // Files smaller than this are parsed on the calling thread; splitting them costs more than it saves.
+    private static final long PARALLEL_PARSE_MIN_BYTES = 8L * 1024 * 1024;
+    // Prefix lists smaller than this are inserted on the calling thread.
+    private static final int PARALLEL_BUILD_MIN_PREFIXES = 50_000;
+    // Partitions at or below this size are built sequentially instead of being split further.
+    private static final int SEQUENTIAL_SUBTRIE_PREFIXES = 8_192;
+
+    private volatile TrieNode root;
+    private final boolean minimal;
 
     public TriePrefixMatcher() {
+        this(false);
+    }
+
+    /**
+     * @param minimal - Whether cold loads from a List sort the prefixes and build a minimal Trie in one pass,
+     *                sharing identical suffix subtrees, instead of inserting them one by one.
+     */
+    public TriePrefixMatcher(boolean minimal) {
         this.root = new TrieNode();
+        this.minimal = minimal;
     }
 
     /**
-     * Helper method to insert a single prefix.
+     * Helper method to insert a single prefix into a Trie that is not yet visible to readers.
      */
-    private void insert(String prefix) {
+    static void insert(TrieNode root, String prefix) {
+        insert(root, prefix, 0);
+    }
+
+    /**
+     * Inserts the characters of the prefix from the given index on, below a node standing for the characters before it.
+     */
+    static void insert(TrieNode root, String prefix, int from) {
         TrieNode current = root;
-        for (char ch : prefix.toCharArray()) {
-            current = current.getChildren().computeIfAbsent(ch, k -> new TrieNode());
+        for (int i = from; i < prefix.length(); i++) {
+            current = current.getOrCreateChild(prefix.charAt(i));
         }
         current.setEndOfPrefix(true);
     }
 
+    static void insert(TrieNode root, char[] prefix, int length) {
+        TrieNode current = root;
+        for (int i = 0; i < length; i++) {
+            current = current.getOrCreateChild(prefix[i]);
+        }
+        current.setEndOfPrefix(true);
+    }
+
+    /**
+     * Builds a private Trie from the prefixes. Large sets are built in parallel on the common pool.
+     */
+    static TrieNode build(Collection<String> prefixes) {
+        if (prefixes.size() < PARALLEL_BUILD_MIN_PREFIXES || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            TrieNode newRoot = new TrieNode();
+            for (String prefix : prefixes) {
+                insert(newRoot, prefix);
+            }
+            return newRoot;
+        }
+        return build(prefixes, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds a private Trie on the given pool: the prefixes are partitioned by their leading characters,
+     * each partition's subtrie is built by its own task, and the subtries are stitched under their parents.
+     */
+    static TrieNode build(Collection<String> prefixes, ForkJoinPool pool) {
+        String[] all = prefixes.toArray(new String[0]);
+        int[] indices = new int[all.length];
+        Arrays.setAll(indices, i -> i);
+        return pool.invoke(new SubtrieTask(all, indices, 0, indices.length, 0, (char) 0));
+    }
+
+    /**
+     * Builds a private Trie straight from a newline-delimited UTF-8 stream, without a String per prefix.
+     */
+    static TrieNode build(InputStream in) throws IOException {
+        TrieNode newRoot = new TrieNode();
+        PrefixLines.forEach(in, (chars, length) -> insert(newRoot, chars, length));
+        return newRoot;
+    }
+
+    /**
+     * Returns a Trie holding the prefixes of both arguments. Neither argument is modified:
+     * nodes present on only one side are shared, nodes present on both sides are copied and merged.
+     */
+    static TrieNode merge(TrieNode base, TrieNode addition) {
+        TrieNode merged = base.copy();
+        if (addition.isEndOfPrefix()) {
+            merged.setEndOfPrefix(true);
+        }
+        addition.forEachChild((key, child) -> {
+            TrieNode existing = merged.getChild(key);
+            merged.putChild(key, existing == null ? child : merge(existing, child));
+        });
+        return merged;
+    }
+
     /**
-     * Loads prefixes from a file, required by the PrefixMatcher interface.
+     * Loads prefixes, required by the PrefixMatcher interface.
+     * The prefixes are built into a private Trie and published once: as is on a cold load,
+     * merged with the current Trie otherwise, so a large load costs one publish rather than one per prefix.
      * @param prefixes - All the prefixes.
      */
     @Override
     public void loadPrefixes(List<String> prefixes) {
-        for (String prefix : prefixes) {
-            insert(prefix);
+        publishMerged(minimal ? SortedTrieBuilder.build(prefixes) : build(prefixes));
+    }
+
+    /**
+     * Streams prefixes into a privately built Trie and merges it into the published one.
+     */
+    @Override
+    public void loadPrefixes(InputStream in) throws IOException {
+        publishMerged(build(in));
+    }
+
+    /**
+     * Streams prefixes from a file. Large files are split into line-aligned chunks that are parsed
+     * into separate Tries in parallel and then merged.
+     */
+    @Override
+    public void loadPrefixes(Path prefixFile) throws IOException {
+        int chunks = 1;
+        try (FileChannel channel = FileChannel.open(prefixFile, StandardOpenOption.READ)) {
+            if (channel.size() >= PARALLEL_PARSE_MIN_BYTES) {
+                chunks = ForkJoinPool.getCommonPoolParallelism();
+            }
         }
+        loadPrefixes(prefixFile, chunks);
+    }
+
+    /**
+     * Streams prefixes from a file split into the given number of chunks, parsed in parallel on the common pool.
+     * @param prefixFile Path to the prefix file.
+     * @param chunks Number of chunks; 1 parses the file on the calling thread.
+     */
+    public void loadPrefixes(Path prefixFile, int chunks) throws IOException {
+        try (FileChannel channel = FileChannel.open(prefixFile, StandardOpenOption.READ)) {
+            List<PrefixLines.Region> regions = PrefixLines.split(channel, Math.max(1, chunks));
+            TrieNode loaded = new TrieNode();
+            if (regions.size() == 1) {
+                loaded = parse(channel, regions.get(0));
+            } else if (regions.size() > 1) {
+                List<Callable<TrieNode>> tasks = new ArrayList<>(regions.size());
+                for (PrefixLines.Region region : regions) {
+                    tasks.add(() -> parse(channel, region));
+                }
+                for (Future<TrieNode> chunk : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                    loaded = merge(loaded, join(chunk));
+                }
+            }
+            publishMerged(loaded);
+        }
+    }
+
+    private static TrieNode parse(FileChannel channel, PrefixLines.Region region) throws IOException {
+        TrieNode chunkRoot = new TrieNode();
+        PrefixLines.forEach(channel, region, (chars, length) -> insert(chunkRoot, chars, length));
+        return chunkRoot;
+    }
+
+    private static TrieNode join(Future<TrieNode> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading prefixes");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Failed to load prefixes", e.getCause());
+        }
+    }
+
+    private synchronized void publishMerged(TrieNode loaded) {
+        TrieNode current = root;
+        boolean empty = current.getChildCount() == 0 && !current.isEndOfPrefix();
+        root = empty ? loaded : merge(current, loaded);
+    }
+
+    /**
+     * Adds a prefix by cloning the nodes along its path and publishing a new root.
+     * Writers are serialised; concurrent lookups continue on the previous root.
+     */
+    @Override
+    public synchronized void addPrefix(String prefix) {
+        TrieNode newRoot = root.copy();
+        TrieNode current = newRoot;
+        for (int i = 0; i < prefix.length(); i++) {
+            char ch = prefix.charAt(i);
+            TrieNode child = current.getChild(ch);
+            TrieNode childCopy = child == null ? new TrieNode() : child.copy();
+            current.putChild(ch, childCopy);
+            current = childCopy;
+        }
+        current.setEndOfPrefix(true);
+        root = newRoot;
+    }
+
+    /**
+     * Removes a prefix by cloning the nodes along its path, pruning nodes that no longer lead to
+     * any prefix, and publishing a new root.
+     */
+    @Override
+    public synchronized boolean removePrefix(String prefix) {
+        TrieNode[] path = new TrieNode[prefix.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            path[i + 1] = path[i].getChild(prefix.charAt(i));
+            if (path[i + 1] == null) {
+                return false;
+            }
+        }
+        TrieNode end = path[prefix.length()];
+        if (!end.isEndOfPrefix()) {
+            return false;
+        }
+
+        // Rebuild the path bottom-up; a null replacement means the child is pruned from its parent.
+        TrieNode replacement = null;
+        if (end.getChildCount() > 0 || end == path[0]) {
+            replacement = end.copy();
+            replacement.setEndOfPrefix(false);
+        }
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            TrieNode parent = path[i].copy();
+            char ch = prefix.charAt(i);
+            if (replacement != null) {
+                parent.putChild(ch, replacement);
+            } else {
+                parent.removeChild(ch);
+            }
+            boolean prunable = i > 0 && parent.getChildCount() == 0 && !parent.isEndOfPrefix();
+            replacement = prunable ? null : parent;
+        }
+        root = replacement;
+        return true;
     }
 
     /**
@@ -43,24 +279,128 @@ public class TriePrefixMatcher implements PrefixMatcher {
      */
     @Override
     public String findLongestMatchingPrefix(String inputString) {
+        int length = findLongestMatchLength(inputString);
+        return length == 0 ? "" : inputString.substring(0, length);
+    }
+
+    @Override
+    public int findLongestMatchLength(String inputString) {
+        return findLongestMatchLength(inputString, 0, inputString.length());
+    }
+
+    /**
+     * Walks the Trie by index and only remembers the depth of the deepest terminal node,
+     * so the lookup itself allocates nothing.
+     */
+    @Override
+    public int findLongestMatchLength(CharSequence input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        // A single volatile read pins the snapshot this lookup walks.
         TrieNode current = root;
-        String longestMatch = "";
-        StringBuilder currentPrefix = new StringBuilder();
+        int longestMatch = 0;
 
-        for (char ch : inputString.toCharArray()) {
-            TrieNode nextNode = current.getChildren().get(ch);
+        for (int i = 0; i < length; i++) {
+            current = current.getChild(input.charAt(offset + i));
 
-            if (nextNode == null) {
+            if (current == null) {
                 break;
             }
 
-            current = nextNode;
-            currentPrefix.append(ch);
-
             if (current.isEndOfPrefix()) {
-                longestMatch = currentPrefix.toString();
+                longestMatch = i + 1;
             }
         }
         return longestMatch;
     }
+
+    @Override
+    public void findAllMatchingPrefixes(CharSequence input, int offset, int length, IntConsumer matchLengths) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        TrieNode current = root;
+
+        for (int i = 0; i < length; i++) {
+            current = current.getChild(input.charAt(offset + i));
+            if (current == null) {
+                break;
+            }
+            if (current.isEndOfPrefix()) {
+                matchLengths.accept(i + 1);
+            }
+        }
+    }
+
+    /**
+     * Builds the subtrie for the prefixes indices[from, to), which all share their first depth characters.
+     * Large partitions are split again by the character at depth, so a skewed leading character
+     * (every prefix starting with '+', say) still fans out across the pool one level further down.
+     */
+    private static final class SubtrieTask extends RecursiveTask<TrieNode> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final String[] prefixes;
+        private final int[] indices;
+        private final int from;
+        private final int to;
+        private final int depth;
+        // The character leading from the parent to this subtrie.
+        private final char key;
+
+        private SubtrieTask(String[] prefixes, int[] indices, int from, int to, int depth, char key) {
+            this.prefixes = prefixes;
+            this.indices = indices;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+            this.key = key;
+        }
+
+        @Override
+        protected TrieNode compute() {
+            TrieNode node = new TrieNode();
+            if (to - from <= SEQUENTIAL_SUBTRIE_PREFIXES) {
+                for (int i = from; i < to; i++) {
+                    insert(node, prefixes[indices[i]], depth);
+                }
+                return node;
+            }
+
+            // Counting sort of the partition by the character at depth; prefixes ending here mark this node.
+            int[] starts = new int[Character.MAX_VALUE + 2];
+            for (int i = from; i < to; i++) {
+                String prefix = prefixes[indices[i]];
+                if (prefix.length() == depth) {
+                    node.setEndOfPrefix(true);
+                } else {
+                    starts[prefix.charAt(depth) + 1]++;
+                }
+            }
+            for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+                starts[ch + 1] += starts[ch];
+            }
+            int partitioned = starts[Character.MAX_VALUE + 1];
+            int[] sorted = new int[partitioned];
+            int[] next = Arrays.copyOf(starts, Character.MAX_VALUE + 1);
+            for (int i = from; i < to; i++) {
+                String prefix = prefixes[indices[i]];
+                if (prefix.length() > depth) {
+                    sorted[next[prefix.charAt(depth)]++] = indices[i];
+                }
+            }
+            System.arraycopy(sorted, 0, indices, from, partitioned);
+
+            List<SubtrieTask> children = new ArrayList<>();
+            for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+                if (starts[ch + 1] > starts[ch]) {
+                    children.add(new SubtrieTask(prefixes, indices, from + starts[ch], from + starts[ch + 1], depth + 1, (char) ch));
+                }
+            }
+            invokeAll(children);
+            // Children are stitched in ascending key order, which keeps the sorted child arrays append-only.
+            for (SubtrieTask child : children) {
+                node.putChild(child.key, child.join());
+            }
+            return node;
+        }
+    }
 }
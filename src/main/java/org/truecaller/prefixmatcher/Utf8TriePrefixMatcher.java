@@ -0,0 +1,152 @@
+package org.truecaller.prefixmatcher;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements PrefixMatcher and BytePrefixMatcher with an automaton keyed on UTF-8 bytes.
+ * Byte lookups walk the input as is: no decoding, no allocation, and the result is a length in bytes.
+ * String lookups encode each character on the fly while walking, and report the length in chars.
+ */
+public class Utf8TriePrefixMatcher implements PrefixMatcher, BytePrefixMatcher {
+
+    // Minimal automaton over the UTF-8 encoding of the prefixes. Each byte is carried as a char in 0..255,
+    // so the automaton's char order is unsigned byte order.
+    private final DawgPrefixMatcher automaton = new DawgPrefixMatcher();
+
+    /**
+     * Builds the byte automaton for the prefixes. It is immutable, so this may only be called once per instance.
+     * @param prefixes - All the prefixes.
+     */
+    @Override
+    public void loadPrefixes(List<String> prefixes) {
+        List<String> encoded = new ArrayList<>(prefixes.size());
+        for (String prefix : prefixes) {
+            encoded.add(new String(prefix.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1));
+        }
+        automaton.loadPrefixes(encoded);
+    }
+
+    @Override
+    public String findLongestMatchingPrefix(String inputString) {
+        int length = findLongestMatchLength(inputString);
+        return length == 0 ? "" : inputString.substring(0, length);
+    }
+
+    @Override
+    public int findLongestMatchLength(String inputString) {
+        return findLongestMatchLength(inputString, 0, inputString.length());
+    }
+
+    @Override
+    public int findLongestMatchLength(CharSequence input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        int state = DawgPrefixMatcher.START;
+        int longestMatch = 0;
+
+        for (int i = 0; i < length; i++) {
+            char ch = input.charAt(offset + i);
+            int codePoint = ch;
+            if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(input.charAt(offset + i + 1))) {
+                codePoint = Character.toCodePoint(ch, input.charAt(offset + ++i));
+            } else if (Character.isSurrogate(ch)) {
+                // Unpaired surrogates encode as '?', exactly as String.getBytes did for the prefixes.
+                codePoint = '?';
+            }
+            state = step(state, codePoint);
+            if (state < 0) {
+                break;
+            }
+            if (automaton.isTerminal(state)) {
+                longestMatch = i + 1;
+            }
+        }
+        return longestMatch;
+    }
+
+    @Override
+    public void findAllMatchingPrefixes(CharSequence input, int offset, int length, IntConsumer matchLengths) {
+        Objects.checkFromIndexSize(offset, length, input.length());
+        int state = DawgPrefixMatcher.START;
+
+        for (int i = 0; i < length; i++) {
+            char ch = input.charAt(offset + i);
+            int codePoint = ch;
+            if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(input.charAt(offset + i + 1))) {
+                codePoint = Character.toCodePoint(ch, input.charAt(offset + ++i));
+            } else if (Character.isSurrogate(ch)) {
+                codePoint = '?';
+            }
+            state = step(state, codePoint);
+            if (state < 0) {
+                break;
+            }
+            if (automaton.isTerminal(state)) {
+                matchLengths.accept(i + 1);
+            }
+        }
+    }
+
+    @Override
+    public int findLongestMatchLength(byte[] input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length);
+        int state = DawgPrefixMatcher.START;
+        int longestMatch = 0;
+
+        for (int i = 0; i < length; i++) {
+            state = automaton.transition(state, (char) (input[offset + i] & 0xFF));
+            if (state < 0) {
+                break;
+            }
+            if (automaton.isTerminal(state)) {
+                longestMatch = i + 1;
+            }
+        }
+        return longestMatch;
+    }
+
+    @Override
+    public int findLongestMatchLength(ByteBuffer input) {
+        int start = input.position();
+        int length = input.remaining();
+        int state = DawgPrefixMatcher.START;
+        int longestMatch = 0;
+
+        for (int i = 0; i < length; i++) {
+            state = automaton.transition(state, (char) (input.get(start + i) & 0xFF));
+            if (state < 0) {
+                break;
+            }
+            if (automaton.isTerminal(state)) {
+                longestMatch = i + 1;
+            }
+        }
+        return longestMatch;
+    }
+
+    /**
+     * Follows the UTF-8 bytes of one code point.
+     * @return The state reached, or -1 if the automaton has no such path.
+     */
+    private int step(int state, int codePoint) {
+        if (codePoint < 0x80) {
+            return automaton.transition(state, (char) codePoint);
+        }
+        if (codePoint < 0x800) {
+            state = automaton.transition(state, (char) (0xC0 | codePoint >>> 6));
+        } else {
+            if (codePoint < 0x10000) {
+                state = automaton.transition(state, (char) (0xE0 | codePoint >>> 12));
+            } else {
+                state = automaton.transition(state, (char) (0xF0 | codePoint >>> 18));
+                state = state < 0 ? -1 : automaton.transition(state, (char) (0x80 | (codePoint >>> 12) & 0x3F));
+            }
+            state = state < 0 ? -1 : automaton.transition(state, (char) (0x80 | (codePoint >>> 6) & 0x3F));
+        }
+        return state < 0 ? -1 : automaton.transition(state, (char) (0x80 | codePoint & 0x3F));
+    }
+}
@@ -1,10 +1,29 @@
 package org.truecaller;
 
 import org.junit.jupiter.api.*;
+import org.truecaller.execution.ExecutionMode;
+import org.truecaller.models.MatchResults;
+import org.truecaller.prefixmatcher.MappedTriePrefixMatcher;
 import org.truecaller.prefixmatcher.MatcherApproach;
+import org.truecaller.prefixmatcher.PrefixMatcher;
+import org.truecaller.prefixmatcher.TriePrefixMatcher;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -68,6 +87,15 @@ class LongestPrefixMatchServiceTest {
         assertThrows(NullPointerException.class, () -> service.matchSingleString(null));
     }
 
+    @Test
+    @DisplayName("matchBatch rethrows a failed lookup's exception without interrupting the caller")
+    void testMatchBatch_FailedLookup() {
+        List<String> inputs = Arrays.asList("ABCD1000", null, "AB999");
+
+        assertThrows(NullPointerException.class, () -> service.matchBatch(inputs));
+        assertFalse(Thread.interrupted());
+    }
+
     @Test
     @DisplayName("matchConcurrentStrings resolves multiple matches correctly in parallel")
     void testMatchConcurrentStrings_Batch() {
@@ -112,6 +140,57 @@ class LongestPrefixMatchServiceTest {
         large.forEach(key -> assertEquals("USER123", result.get(key)));
     }
 
+    @Test
+    @DisplayName("matchConcurrentStrings covers every input across chunk boundaries, including duplicates")
+    void testMatchConcurrentStrings_ChunkBoundaries() {
+        List<String> inputs = java.util.stream.IntStream.range(0, 10_007)
+                .mapToObj(i -> switch (i % 3) {
+                    case 0 -> "ABCD" + i;
+                    case 1 -> "XY" + i;
+                    default -> "NOPE";
+                })
+                .toList();
+
+        Map<String, String> result = service.matchConcurrentStrings(inputs);
+
+        assertEquals(inputs.stream().distinct().count(), result.size());
+        inputs.forEach(key -> assertEquals(
+                key.startsWith("ABCD") ? "ABCD" : key.startsWith("XY") ? "XY" : "", result.get(key)));
+    }
+
+    @Test
+    @DisplayName("matchBatch returns results by position, keeping order and duplicate inputs")
+    void testMatchBatch_PositionalResults() {
+        List<String> inputs = List.of("USERZZZ", "NOPE", "ABCD1000", "USERZZZ", "XYZ");
+
+        MatchResults results = service.matchBatch(inputs);
+
+        assertEquals(5, results.size());
+        assertEquals("USER", results.getMatch(0));
+        assertFalse(results.isMatch(1));
+        assertEquals("", results.getMatch(1));
+        assertEquals(4, results.getMatchLength(2));
+        assertEquals("USER", results.getMatch(3));
+        assertEquals("XYZ", results.getMatch(4));
+        for (int i = 0; i < inputs.size(); i++) {
+            assertEquals(inputs.get(i), results.getInput(i));
+        }
+    }
+
+    @Test
+    @DisplayName("matchBatch agrees with matchSingleString for every position of a large batch")
+    void testMatchBatch_LargeInput() {
+        List<String> inputs = java.util.stream.IntStream.range(0, 5_000)
+                .mapToObj(i -> i % 2 == 0 ? "PRD-ALPHA" + i : "APP" + (i % 7))
+                .toList();
+
+        MatchResults results = service.matchBatch(inputs);
+
+        for (int i = 0; i < inputs.size(); i++) {
+            assertEquals(service.matchSingleString(inputs.get(i)), results.getMatch(i));
+        }
+    }
+
     @Test
     @DisplayName("shutdown gracefully stops executor without exceptions")
     void testShutdown() {
@@ -127,4 +206,366 @@ class LongestPrefixMatchServiceTest {
         assertEquals("AAAAA", svc.matchSingleString("AAAAAX"));
         svc.shutdown();
     }
+
+    @Test
+    @DisplayName("AUTO approach serves the same matches for small and large prefix sets")
+    void testAutoApproach() {
+        LongestPrefixMatchService small = new LongestPrefixMatchService(
+                List.of("AB", "ABC", "XYZ"), MatcherApproach.AUTO
+        );
+        List<String> manyPrefixes = java.util.stream.IntStream.range(0, 1_000)
+                .mapToObj(i -> "P" + i)
+                .toList();
+        LongestPrefixMatchService large = new LongestPrefixMatchService(manyPrefixes, MatcherApproach.AUTO);
+
+        assertEquals("ABC", small.matchSingleString("ABCD"));
+        assertEquals("", small.matchSingleString("XY"));
+        assertEquals("P999", large.matchSingleString("P9999"));
+        small.shutdown();
+        large.shutdown();
+    }
+
+    @Test
+    @DisplayName("OFF_HEAP approach serves lookups until shutdown releases its memory")
+    void testOffHeapApproach() {
+        LongestPrefixMatchService svc = new LongestPrefixMatchService(
+                List.of("PRD-", "PRD-ALPHA"), MatcherApproach.OFF_HEAP
+        );
+        assertEquals("PRD-ALPHA", svc.matchSingleString("PRD-ALPHA-EU"));
+        assertEquals("PRD-", svc.matchBatch(List.of("PRD-BETA")).getMatch(0));
+
+        svc.shutdown();
+        assertThrows(IllegalStateException.class, () -> svc.matchSingleString("PRD-ALPHA-EU"));
+    }
+
+    @Test
+    @DisplayName("matchLength matches a field inside a larger buffer the same way for every matcher approach")
+    void testMatchLengthOfRegion() {
+        StringBuilder line = new StringBuilder("level=INFO sku=PRD-ALPHA99 user=USER123XYZ");
+        assertEquals(9, service.matchLength(line, 15, 11));
+        assertEquals(4, service.matchLength(line, 15, 4));
+
+        for (MatcherApproach approach : MatcherApproach.values()) {
+            try (var matcher = LongestPrefixMatchService.createMatcherInstance(approach, 11)) {
+                matcher.loadPrefixes(List.of("AB", "ABC", "USER", "USER123", "PRD-", "PRD-ALPHA"));
+                assertEquals(7, matcher.findLongestMatchLength(line, 32, 10), approach.name());
+                assertEquals(4, matcher.findLongestMatchLength(java.nio.CharBuffer.wrap(line), 32, 6), approach.name());
+                assertEquals(0, matcher.findLongestMatchLength(line, 0, line.length()), approach.name());
+                assertThrows(IndexOutOfBoundsException.class,
+                        () -> matcher.findLongestMatchLength(line, 40, 5), approach.name());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("matchAll returns every matching prefix, shortest first, for every matcher approach")
+    void testMatchAll() {
+        assertEquals(List.of("PRD-", "PRD-ALPHA"), service.matchAll("PRD-ALPHA99"));
+        assertEquals(List.of(), service.matchAll("NOPE"));
+
+        List<String> prefixes = List.of("U", "US", "USER", "USER123", "USX", "PRD-");
+        for (MatcherApproach approach : MatcherApproach.values()) {
+            try (var matcher = LongestPrefixMatchService.createMatcherInstance(approach, prefixes.size())) {
+                matcher.loadPrefixes(prefixes);
+                assertEquals(List.of("U", "US", "USER", "USER123"), matcher.findAllMatchingPrefixes("USER1234"), approach.name());
+                assertEquals(List.of("U", "US"), matcher.findAllMatchingPrefixes("USE"), approach.name());
+                assertEquals(List.of(), matcher.findAllMatchingPrefixes(""), approach.name());
+            }
+        }
+
+        // A matcher that only implements the longest match falls back to narrowing the input.
+        TriePrefixMatcher trie = new TriePrefixMatcher();
+        trie.loadPrefixes(prefixes);
+        PrefixMatcher longestOnly = new PrefixMatcher() {
+            @Override
+            public void loadPrefixes(List<String> ignored) {
+            }
+
+            @Override
+            public String findLongestMatchingPrefix(String inputString) {
+                return trie.findLongestMatchingPrefix(inputString);
+            }
+        };
+        assertEquals(List.of("U", "US", "USER", "USER123"), longestOnly.findAllMatchingPrefixes("USER1234"));
+    }
+
+    @Test
+    @DisplayName("A Bloom filter in front of the matcher keeps results exact and counts misses across reloads")
+    void testBloomFilter() {
+        assertNull(service.getBloomFilterMetrics());
+
+        LongestPrefixMatchService filtered = new LongestPrefixMatchService(
+                List.of("AB", "ABC", "USER123"), MatcherApproach.TRIE, ExecutionMode.CALLER_RUNS, true);
+        try {
+            assertEquals("ABC", filtered.matchSingleString("ABCD"));
+            assertEquals("", filtered.matchSingleString("ZZZ"));
+            filtered.reload(List.of("ZZ"));
+            assertEquals("ZZ", filtered.matchSingleString("ZZZ"));
+            assertEquals(2, filtered.matchBatch(List.of("ZZ1", "AB", "Q", "ZZZZ")).getMatchLength(3));
+
+            var metrics = filtered.getBloomFilterMetrics();
+            assertEquals(7, metrics.getLookups());
+            assertEquals(3, metrics.getShortCircuited() + metrics.getFalsePositives());
+        } finally {
+            filtered.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("reload swaps in the new prefix set for subsequent lookups")
+    void testReloadFromList() {
+        service.reload(List.of("NEW", "NEWER"));
+
+        assertEquals("NEWER", service.matchSingleString("NEWER_BUILD"));
+        assertEquals("NEW", service.matchSingleString("NEWEST"));
+        assertEquals("", service.matchSingleString("ABCD999"));
+    }
+
+    @Test
+    @DisplayName("reload reads a newline-delimited prefix file")
+    void testReloadFromFile() throws IOException {
+        Path file = Files.createTempFile("prefixes", ".txt");
+        try {
+            Files.writeString(file, "ROUTE-\nROUTE-EU\n");
+            service.reload(file);
+
+            assertEquals("ROUTE-EU", service.matchSingleString("ROUTE-EU-WEST"));
+            assertEquals("ROUTE-", service.matchSingleString("ROUTE-US"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("a compiled snapshot can start the service and replace its prefix set")
+    void testSnapshots() throws IOException {
+        Path first = Files.createTempFile("routes", ".trie");
+        Path second = Files.createTempFile("routes", ".trie");
+        try {
+            MappedTriePrefixMatcher.compile(List.of("ROUTE-", "ROUTE-EU"), first);
+            MappedTriePrefixMatcher.compile(List.of("ROUTE-US"), second);
+            LongestPrefixMatchService svc = new LongestPrefixMatchService(first, MatcherApproach.TRIE,
+                    ExecutionMode.CALLER_RUNS);
+            assertEquals("ROUTE-EU", svc.matchSingleString("ROUTE-EU-WEST"));
+            assertThrows(UnsupportedOperationException.class, () -> svc.addPrefix("ROUTE-APAC"));
+
+            svc.reloadSnapshot(second);
+            assertEquals("ROUTE-US", svc.matchSingleString("ROUTE-US-EAST"));
+            assertEquals("", svc.matchSingleString("ROUTE-EU-WEST"));
+
+            // A list reload goes back to the configured approach, which accepts updates again.
+            svc.reload(List.of("ROUTE-"));
+            svc.addPrefix("ROUTE-APAC");
+            assertEquals("ROUTE-APAC", svc.matchSingleString("ROUTE-APAC-1"));
+            svc.shutdown();
+        } finally {
+            Files.deleteIfExists(first);
+            Files.deleteIfExists(second);
+        }
+    }
+
+    @Test
+    @DisplayName("reload of a missing file fails without disturbing the current prefix set")
+    void testReloadFromMissingFile() {
+        assertThrows(UncheckedIOException.class, () -> service.reload(Path.of("does-not-exist.txt")));
+        assertEquals("ABCD", service.matchSingleString("ABCD999"));
+    }
+
+    @Test
+    @DisplayName("lookups running during reloads always see either the old or the new prefix set")
+    void testLookupsDuringReload() throws InterruptedException {
+        List<String> oldSet = List.of("USER", "USER123");
+        List<String> newSet = List.of("USER", "USER1");
+        service.reload(oldSet);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> unexpected = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                String match = service.matchSingleString("USER123XYZ");
+                if (!match.equals("USER123") && !match.equals("USER1")) {
+                    unexpected.set(match);
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 200; i++) {
+            service.reload(i % 2 == 0 ? newSet : oldSet);
+        }
+        running.set(false);
+        reader.join();
+
+        assertNull(unexpected.get());
+    }
+
+    @Test
+    @DisplayName("addPrefix and removePrefix update the live prefix set")
+    void testIncrementalUpdates() {
+        service.addPrefix("USER123-ADMIN");
+        assertEquals("USER123-ADMIN", service.matchSingleString("USER123-ADMIN-7"));
+
+        assertTrue(service.removePrefix("USER123"));
+        assertEquals("USER", service.matchSingleString("USER123XYZ"));
+        assertFalse(service.removePrefix("USER123"));
+    }
+
+    @Test
+    @DisplayName("addPrefix and removePrefix work when AUTO picks a linear scan for a small set")
+    void testIncrementalUpdatesOnSmallAutoService() {
+        LongestPrefixMatchService svc = new LongestPrefixMatchService(List.of("AB", "ABC"), MatcherApproach.AUTO);
+        svc.addPrefix("ABCD");
+        assertEquals("ABCD", svc.matchSingleString("ABCDE"));
+
+        assertTrue(svc.removePrefix("ABC"));
+        assertEquals("AB", svc.matchSingleString("ABCX"));
+        svc.shutdown();
+    }
+
+    @Test
+    @DisplayName("addPrefix is rejected for immutable matcher approaches")
+    void testIncrementalUpdatesOnImmutableMatcher() {
+        LongestPrefixMatchService svc = new LongestPrefixMatchService(List.of("AB"), MatcherApproach.DOUBLE_ARRAY);
+        assertThrows(UnsupportedOperationException.class, () -> svc.addPrefix("ABC"));
+        svc.shutdown();
+    }
+
+    @Test
+    @DisplayName("every execution mode produces the same batch results and shuts down cleanly")
+    void testExecutionModes() {
+        List<String> inputs = java.util.stream.IntStream.range(0, 3_000)
+                .mapToObj(i -> i % 2 == 0 ? "USER123_" + i : "XY" + i)
+                .toList();
+
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            LongestPrefixMatchService svc = new LongestPrefixMatchService(
+                    List.of("USER", "USER123", "XY"), MatcherApproach.TRIE, mode
+            );
+            MatchResults results = svc.matchBatch(inputs);
+            for (int i = 0; i < inputs.size(); i++) {
+                assertEquals(i % 2 == 0 ? "USER123" : "XY", results.getMatch(i), mode.name());
+            }
+            assertDoesNotThrow(svc::shutdown);
+        }
+    }
+
+    @Test
+    @DisplayName("matchAsync completes with the same match as matchSingleString in every execution mode")
+    void testMatchAsync() throws Exception {
+        assertEquals("USER123", service.matchAsync("USER123XYZ").get(5, TimeUnit.SECONDS));
+        assertEquals("", service.matchAsync("NOPE").get(5, TimeUnit.SECONDS));
+
+        LongestPrefixMatchService inline = new LongestPrefixMatchService(
+                List.of("AB", "ABC"), MatcherApproach.TRIE, ExecutionMode.CALLER_RUNS
+        );
+        assertTrue(inline.matchAsync("ABCD").isDone());
+        assertEquals("ABC", inline.matchAsync("ABCD").get());
+        inline.shutdown();
+    }
+
+    @Test
+    @DisplayName("matchAsync reports a failed lookup through the future instead of throwing")
+    void testMatchAsync_NullInput() {
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> service.matchAsync(null).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(NullPointerException.class, failure.getCause());
+    }
+
+    @Test
+    @DisplayName("matchStream emits one match per input, in order, and completes")
+    void testMatchStream() throws InterruptedException {
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+        try (SubmissionPublisher<String> inputs = new SubmissionPublisher<>()) {
+            service.matchStream(inputs).subscribe(subscriber);
+            List.of("ABCD1000", "NOPE", "PRD-BETA", "ABCD1000").forEach(inputs::submit);
+        }
+
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("ABCD", "", "PRD-", "ABCD"), subscriber.received);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    @DisplayName("matchStream never emits more matches than the subscriber requested")
+    void testMatchStream_Backpressure() throws InterruptedException {
+        CollectingSubscriber subscriber = new CollectingSubscriber(2);
+        SubmissionPublisher<String> inputs = new SubmissionPublisher<>();
+        service.matchStream(inputs).subscribe(subscriber);
+        for (int i = 0; i < 10; i++) {
+            inputs.submit("USER" + i);
+        }
+        inputs.close();
+
+        // Only the requested two arrive; the rest wait upstream until more demand is signalled.
+        assertFalse(subscriber.completed.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(2, subscriber.received.size());
+
+        subscriber.subscription.request(8);
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(10, subscriber.received.size());
+        subscriber.received.forEach(match -> assertEquals("USER", match));
+    }
+
+    @Test
+    @DisplayName("matchStream cancels upstream and signals onError when a lookup fails")
+    void testMatchStream_Error() throws InterruptedException {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        // Emits a null input, which the lookup rejects, followed by a valid one that must never be delivered.
+        Flow.Publisher<String> inputs = downstream -> downstream.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                downstream.onNext(null);
+                downstream.onNext("AB1");
+                downstream.onComplete();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled.set(true);
+            }
+        });
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+        service.matchStream(inputs).subscribe(subscriber);
+
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(NullPointerException.class, subscriber.error);
+        assertTrue(cancelled.get());
+        assertTrue(subscriber.received.isEmpty());
+    }
+
+    /**
+     * Records every signal and requests a fixed amount up front.
+     */
+    private static final class CollectingSubscriber implements Flow.Subscriber<String> {
+        private final long initialDemand;
+        private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        private CollectingSubscriber(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialDemand);
+        }
+
+        @Override
+        public void onNext(String item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
 }
@@ -0,0 +1,118 @@
+package org.truecaller.prefixmatcher;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the AhoCorasickPrefixMatcher implementation of the PrefixMatcher interface.
+ */
+class AhoCorasickPrefixMatcherTest {
+
+    private AhoCorasickPrefixMatcher matcher;
+
+    private static final List<String> SAMPLE_PREFIXES = Arrays.asList(
+            "a", "app", "apple", "application",
+            "bat", "batter",
+            "tru", "true",
+            "foo"
+    );
+
+    @BeforeEach
+    void setUp() {
+        matcher = new AhoCorasickPrefixMatcher();
+        matcher.loadPrefixes(SAMPLE_PREFIXES);
+    }
+
+    @Test
+    @DisplayName("T1: Should return the longest matching prefix, ignoring matches that do not start at the input start")
+    void testLongestMatchAmongMultiple() {
+        assertEquals("application", matcher.findLongestMatchingPrefix("application_server"));
+        assertEquals("true", matcher.findLongestMatchingPrefix("truecaller_id"));
+        assertEquals("batter", matcher.findLongestMatchingPrefix("batter_up_baseball"));
+        assertEquals("app", matcher.findLongestMatchingPrefix("applx_test"));
+        // 'bat' and 'a' occur inside the input, but only anchored matches count as prefixes.
+        assertEquals("", matcher.findLongestMatchingPrefix("xbatter"));
+        assertEquals(List.of("a", "app", "apple"), matcher.findAllMatchingPrefixes("applepie"));
+    }
+
+    @Test
+    @DisplayName("T2: Should scan every occurrence at any offset, by end index and longest first")
+    void testScan() {
+        List<String> found = new ArrayList<>();
+        String text = "fix: batter true apple";
+        matcher.scan(text, (start, length) -> found.add(start + ":" + text.substring(start, start + length)));
+
+        assertEquals(List.of(
+                "6:a", "5:bat", "5:batter",
+                "12:tru", "12:true",
+                "17:a", "17:app", "17:apple"), found);
+    }
+
+    @Test
+    @DisplayName("T3: Should report start indices in the input when scanning a region")
+    void testScanRegion() {
+        StringBuilder line = new StringBuilder("foo|foobar|foo");
+        List<Integer> starts = new ArrayList<>();
+
+        matcher.scan(line, 3, 8, (start, length) -> starts.add(start));
+        // "foo" at 4, and the "a" inside "foobar" at 8; the occurrences at 0 and 11 lie outside the region.
+        assertEquals(List.of(4, 8), starts);
+        assertThrows(IndexOutOfBoundsException.class, () -> matcher.scan(line, 10, 5, (start, length) -> { }));
+    }
+
+    @Test
+    @DisplayName("E1: Should return empty string for no match or empty input")
+    void testNoMatch() {
+        assertEquals("", matcher.findLongestMatchingPrefix("zebra"));
+        assertEquals("", matcher.findLongestMatchingPrefix("fo"));
+        assertEquals("", matcher.findLongestMatchingPrefix(""));
+    }
+
+    @Test
+    @DisplayName("S1: Should handle an empty list of prefixes")
+    void testLoadEmptyPrefixes() {
+        AhoCorasickPrefixMatcher emptyMatcher = new AhoCorasickPrefixMatcher();
+        emptyMatcher.loadPrefixes(Collections.emptyList());
+
+        assertEquals("", emptyMatcher.findLongestMatchingPrefix("test"));
+        emptyMatcher.scan("test", (start, length) -> fail("unexpected match at " + start));
+    }
+
+    @Test
+    @DisplayName("S2: Should reject a second load, since the automaton is immutable")
+    void testSecondLoadRejected() {
+        assertThrows(IllegalStateException.class, () -> matcher.loadPrefixes(SAMPLE_PREFIXES));
+    }
+
+    @Test
+    @DisplayName("S3: Should find the same occurrences as matching every offset with TriePrefixMatcher")
+    void testAgreesWithTrie() {
+        AhoCorasickPrefixMatcher actual = new AhoCorasickPrefixMatcher();
+        MatcherAgreement.Sample sample = MatcherAgreement.assertAgreesWithTrie(actual, 23,
+                MatcherAgreement.Shape.of(new String[] {"a", "b", "c", "é"}, 500, 5, 200, 200));
+        PrefixMatcher expected = sample.reference();
+
+        for (String text : sample.inputs()) {
+            List<Long> expectedOccurrences = new ArrayList<>();
+            for (int start = 0; start < text.length(); start++) {
+                int from = start;
+                expected.findAllMatchingPrefixes(text, start, text.length() - start,
+                        length -> expectedOccurrences.add((long) from << 32 | length));
+            }
+            List<Long> actualOccurrences = new ArrayList<>();
+            actual.scan(text, (start, length) -> actualOccurrences.add((long) start << 32 | length));
+
+            Collections.sort(expectedOccurrences);
+            Collections.sort(actualOccurrences);
+            assertEquals(expectedOccurrences, actualOccurrences);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.truecaller.prefixmatcher;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BloomFilteredPrefixMatcher decorator.
+ */
+class BloomFilteredPrefixMatcherTest {
+
+    private BloomFilteredPrefixMatcher matcher;
+
+    private static final List<String> SAMPLE_PREFIXES = Arrays.asList(
+            "a", "app", "apple", "application",
+            "bat", "batter",
+            "tru", "true",
+            "foo"
+    );
+
+    @BeforeEach
+    void setUp() {
+        matcher = new BloomFilteredPrefixMatcher(new TriePrefixMatcher());
+        matcher.loadPrefixes(SAMPLE_PREFIXES);
+    }
+
+    @Test
+    @DisplayName("T1: Should return the same matches as the wrapped matcher")
+    void testLongestMatchAmongMultiple() {
+        assertEquals("application", matcher.findLongestMatchingPrefix("application_server"));
+        assertEquals("true", matcher.findLongestMatchingPrefix("truecaller_id"));
+        assertEquals("batter", matcher.findLongestMatchingPrefix("batter_up_baseball"));
+        assertEquals(3, matcher.findLongestMatchLength(new StringBuilder("x=applx"), 2, 5));
+        assertEquals(List.of("a", "app", "apple"), matcher.findAllMatchingPrefixes("applepie"));
+    }
+
+    @Test
+    @DisplayName("T2: Should answer misses from the filter and count them")
+    void testShortCircuitMetrics() {
+        assertEquals("", matcher.findLongestMatchingPrefix("zebra"));
+        assertEquals("", matcher.findLongestMatchingPrefix("fo"));
+        assertEquals("", matcher.findLongestMatchingPrefix(""));
+        assertEquals("foo", matcher.findLongestMatchingPrefix("food"));
+
+        BloomFilterMetrics metrics = matcher.getMetrics();
+        assertEquals(4, metrics.getLookups());
+        // Each miss is either rejected by the filter or, rarely, a false positive; the hit is neither.
+        assertEquals(3, metrics.getShortCircuited() + metrics.getFalsePositives());
+        assertEquals(metrics.getShortCircuited() / 4.0, metrics.getShortCircuitRate(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("U1: Should see prefixes added after the load and keep answering exactly after removals")
+    void testUpdates() {
+        matcher.addPrefix("zeb");
+        matcher.addPrefix("a-much-longer-prefix-than-any-loaded");
+        assertEquals("zeb", matcher.findLongestMatchingPrefix("zebra"));
+        assertEquals(36, matcher.findLongestMatchLength("a-much-longer-prefix-than-any-loaded!"));
+
+        assertTrue(matcher.removePrefix("zeb"));
+        assertEquals("", matcher.findLongestMatchingPrefix("zebra"));
+        assertThrows(UnsupportedOperationException.class,
+                () -> new BloomFilteredPrefixMatcher(new DawgPrefixMatcher()).addPrefix("x"));
+    }
+
+    @Test
+    @DisplayName("S1: Should handle an empty list of prefixes")
+    void testLoadEmptyPrefixes() {
+        BloomFilteredPrefixMatcher emptyMatcher = new BloomFilteredPrefixMatcher(new TriePrefixMatcher());
+        emptyMatcher.loadPrefixes(Collections.emptyList());
+
+        assertEquals("", emptyMatcher.findLongestMatchingPrefix("test"));
+        assertEquals(1, emptyMatcher.getMetrics().getShortCircuited());
+    }
+
+    @Test
+    @DisplayName("S2: Should agree with the wrapped matcher and reject nearly all misses")
+    void testAgreesWithTrieOnMisses() {
+        BloomFilteredPrefixMatcher actual = new BloomFilteredPrefixMatcher(new TriePrefixMatcher());
+        MatcherAgreement.assertAgreesWithTrie(actual, 25, new MatcherAgreement.Shape(
+                100_000, random -> String.format("%08d", random.nextInt(100_000_000)).substring(0, 4 + random.nextInt(5)),
+                100_000, random -> String.format("%012d", (long) (random.nextDouble() * 1e12))));
+
+        // Each input is looked up twice through the filter: once for the match, once for its length.
+        BloomFilterMetrics metrics = actual.getMetrics();
+        assertEquals(200_000, metrics.getLookups());
+        assertTrue(metrics.getShortCircuited() > 0);
+        assertTrue(metrics.getFalsePositiveRate() < 0.05, metrics.toString());
+    }
+}
@@ -0,0 +1,93 @@
+package org.truecaller.prefixmatcher;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the DawgPrefixMatcher implementation of the PrefixMatcher interface.
+ */
+class DawgPrefixMatcherTest {
+
+    private DawgPrefixMatcher matcher;
+
+    private static final List<String> SAMPLE_PREFIXES = Arrays.asList(
+            "a", "app", "apple", "application",
+            "bat", "batter",
+            "tru", "true",
+            "foo"
+    );
+
+    @BeforeEach
+    void setUp() {
+        matcher = new DawgPrefixMatcher();
+        matcher.loadPrefixes(SAMPLE_PREFIXES);
+    }
+
+    @Test
+    @DisplayName("T1: Should return the longest matching prefix among multiple choices")
+    void testLongestMatchAmongMultiple() {
+        assertEquals("application", matcher.findLongestMatchingPrefix("application_server"));
+        assertEquals("true", matcher.findLongestMatchingPrefix("truecaller_id"));
+        assertEquals("batter", matcher.findLongestMatchingPrefix("batter_up_baseball"));
+        assertEquals("app", matcher.findLongestMatchingPrefix("applx_test"));
+    }
+
+    @Test
+    @DisplayName("T2: Should report the match length through shared suffix states")
+    void testSharedSuffixes() {
+        // Both numbers end in the same '5550' tail, which the DAWG stores once.
+        DawgPrefixMatcher phones = new DawgPrefixMatcher();
+        phones.loadPrefixes(List.of("+14155550", "+12125550", "+1415", "+1212555"));
+
+        assertEquals(9, phones.findLongestMatchLength("+141555501234"));
+        assertEquals(9, phones.findLongestMatchLength("+121255501234"));
+        assertEquals(8, phones.findLongestMatchLength("+12125559"));
+        assertEquals(5, phones.findLongestMatchLength("+14155559"));
+        assertEquals(0, phones.findLongestMatchLength("+1313"));
+    }
+
+    @Test
+    @DisplayName("E1: Should return empty string for no match or empty input")
+    void testNoMatch() {
+        assertEquals("", matcher.findLongestMatchingPrefix("zebra"));
+        assertEquals("", matcher.findLongestMatchingPrefix("fo"));
+        assertEquals("", matcher.findLongestMatchingPrefix(""));
+    }
+
+    @Test
+    @DisplayName("S1: Should handle an empty list of prefixes")
+    void testLoadEmptyPrefixes() {
+        PrefixMatcher emptyMatcher = new DawgPrefixMatcher();
+        emptyMatcher.loadPrefixes(Collections.emptyList());
+
+        assertEquals("", emptyMatcher.findLongestMatchingPrefix("test"));
+    }
+
+    @Test
+    @DisplayName("S2: Should reject a second load, since the automaton is immutable")
+    void testSecondLoadRejected() {
+        assertThrows(IllegalStateException.class, () -> matcher.loadPrefixes(SAMPLE_PREFIXES));
+    }
+
+    @Test
+    @DisplayName("S3: Should agree with TriePrefixMatcher using far fewer states than trie nodes")
+    void testAgreesWithTrie() {
+        DawgPrefixMatcher actual = new DawgPrefixMatcher();
+        MatcherAgreement.Sample sample = MatcherAgreement.assertAgreesWithTrie(actual, 17, new MatcherAgreement.Shape(
+                20_000, random -> "+" + (1 + random.nextInt(9)) + String.format("%07d", random.nextInt(10_000_000)),
+                20_000, random -> "+" + random.nextInt(10) + String.format("%09d", random.nextInt(1_000_000_000))));
+
+        for (String prefix : sample.prefixes()) {
+            assertEquals(prefix, actual.findLongestMatchingPrefix(prefix + "9"));
+        }
+        // Every prefix has the same length, so all tails collapse: far fewer states than the ~150k trie nodes.
+        assertTrue(actual.getStateCount() < 40_000, "states: " + actual.getStateCount());
+    }
+}
@@ -0,0 +1,72 @@
+package org.truecaller.prefixmatcher;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the DoubleArrayTriePrefixMatcher implementation of the PrefixMatcher interface.
+ */
+class DoubleArrayTriePrefixMatcherTest {
+
+    private PrefixMatcher matcher;
+
+    private static final List<String> SAMPLE_PREFIXES = Arrays.asList(
+            "a", "app", "apple", "application",
+            "bat", "batter",
+            "tru", "true",
+            "foo"
+    );
+
+    @BeforeEach
+    void setUp() {
+        matcher = new DoubleArrayTriePrefixMatcher();
+        matcher.loadPrefixes(SAMPLE_PREFIXES);
+    }
+
+    @Test
+    @DisplayName("T1: Should return the longest matching prefix among multiple choices")
+    void testLongestMatchAmongMultiple() {
+        assertEquals("application", matcher.findLongestMatchingPrefix("application_server"));
+        assertEquals("true", matcher.findLongestMatchingPrefix("truecaller_id"));
+        assertEquals("batter", matcher.findLongestMatchingPrefix("batter_up_baseball"));
+        assertEquals("app", matcher.findLongestMatchingPrefix("applx_test"));
+    }
+
+    @Test
+    @DisplayName("E1: Should return empty string for no match, empty input, or unseen characters")
+    void testNoMatch() {
+        assertEquals("", matcher.findLongestMatchingPrefix("zebra"));
+        assertEquals("", matcher.findLongestMatchingPrefix("t"));
+        assertEquals("", matcher.findLongestMatchingPrefix(""));
+        assertEquals("", matcher.findLongestMatchingPrefix("\uFFFFapple"));
+    }
+
+    @Test
+    @DisplayName("S1: Should handle an empty list of prefixes")
+    void testLoadEmptyPrefixes() {
+        PrefixMatcher emptyMatcher = new DoubleArrayTriePrefixMatcher();
+        emptyMatcher.loadPrefixes(Collections.emptyList());
+
+        assertEquals("", emptyMatcher.findLongestMatchingPrefix("test"));
+    }
+
+    @Test
+    @DisplayName("S2: Should reject a second load because the compiled trie is immutable")
+    void testSecondLoadRejected() {
+        assertThrows(IllegalStateException.class, () -> matcher.loadPrefixes(List.of("x")));
+    }
+
+    @Test
+    @DisplayName("S3: Should agree with TriePrefixMatcher on a randomised phone-number prefix set")
+    void testAgreesWithTrie() {
+        MatcherAgreement.assertAgreesWithTrie(new DoubleArrayTriePrefixMatcher(), 42,
+                MatcherAgreement.Shape.of(MatcherAgreement.DIGITS, 5_000, 8, 5_000, 10));
+    }
+}
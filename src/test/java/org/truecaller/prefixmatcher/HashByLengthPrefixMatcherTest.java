@@ -0,0 +1,96 @@
+package org.truecaller.prefixmatcher;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the HashByLengthPrefixMatcher implementation of the PrefixMatcher interface.
+ */
+class HashByLengthPrefixMatcherTest {
+
+    private HashByLengthPrefixMatcher matcher;
+
+    private static final List<String> SAMPLE_PREFIXES = Arrays.asList(
+            "a", "app", "apple",
+            "bat", "batter",
+            "tru", "true",
+            "foo", "café"
+    );
+
+    @BeforeEach
+    void setUp() {
+        matcher = new HashByLengthPrefixMatcher();
+        matcher.loadPrefixes(SAMPLE_PREFIXES);
+    }
+
+    @Test
+    @DisplayName("T1: Should return the longest matching prefix, probing only the lengths present")
+    void testLongestMatchAmongMultiple() {
+        assertEquals("apple", matcher.findLongestMatchingPrefix("applesauce"));
+        assertEquals("true", matcher.findLongestMatchingPrefix("truecaller_id"));
+        assertEquals("batter", matcher.findLongestMatchingPrefix("batter_up_baseball"));
+        assertEquals("app", matcher.findLongestMatchingPrefix("applx_test"));
+        assertEquals("café", matcher.findLongestMatchingPrefix("café au lait"));
+        assertEquals(List.of("a", "app", "apple"), matcher.findAllMatchingPrefixes("applepie"));
+        assertEquals(1 << 1 | 1 << 3 | 1 << 4 | 1 << 5 | 1 << 6, matcher.getPresentLengths());
+    }
+
+    @Test
+    @DisplayName("T2: Should stop at characters no prefix can contain, and match regions in place")
+    void testUnsupportedInputCharacters() {
+        assertEquals("a", matcher.findLongestMatchingPrefix("a€ple"));
+        assertEquals("", matcher.findLongestMatchingPrefix("€"));
+
+        StringBuilder line = new StringBuilder("to=battery;");
+        assertEquals(6, matcher.findLongestMatchLength(line, 3, 7));
+        assertEquals(3, matcher.findLongestMatchLength(line, 3, 5));
+        assertEquals(0, matcher.findLongestMatchLength(line, 3, 2));
+    }
+
+    @Test
+    @DisplayName("E1: Should return empty string for no match or empty input")
+    void testNoMatch() {
+        assertEquals("", matcher.findLongestMatchingPrefix("zebra"));
+        assertEquals("", matcher.findLongestMatchingPrefix("fo"));
+        assertEquals("", matcher.findLongestMatchingPrefix(""));
+    }
+
+    @Test
+    @DisplayName("S1: Should handle an empty list of prefixes and the all-NUL prefix")
+    void testEdgePrefixSets() {
+        HashByLengthPrefixMatcher emptyMatcher = new HashByLengthPrefixMatcher();
+        emptyMatcher.loadPrefixes(Collections.emptyList());
+        assertEquals("", emptyMatcher.findLongestMatchingPrefix("test"));
+
+        // The packed key of "\0\0" is 0, the same value as an empty slot.
+        HashByLengthPrefixMatcher nulMatcher = new HashByLengthPrefixMatcher();
+        nulMatcher.loadPrefixes(List.of("\0\0", "\0\1"));
+        assertEquals(2, nulMatcher.findLongestMatchLength("\0\0x"));
+        assertEquals(2, nulMatcher.findLongestMatchLength("\0\1x"));
+        assertEquals(0, nulMatcher.findLongestMatchLength("\0\2x"));
+    }
+
+    @Test
+    @DisplayName("S2: Should reject a second load and prefixes it cannot pack")
+    void testInvalidLoads() {
+        assertThrows(IllegalStateException.class, () -> matcher.loadPrefixes(SAMPLE_PREFIXES));
+        assertThrows(IllegalArgumentException.class, () -> new HashByLengthPrefixMatcher().loadPrefixes(List.of("123456789")));
+        assertThrows(IllegalArgumentException.class, () -> new HashByLengthPrefixMatcher().loadPrefixes(List.of("")));
+        assertThrows(IllegalArgumentException.class, () -> new HashByLengthPrefixMatcher().loadPrefixes(List.of("Жук")));
+    }
+
+    @Test
+    @DisplayName("S3: Should agree with TriePrefixMatcher on a large set of short numeric prefixes")
+    void testAgreesWithTrie() {
+        MatcherAgreement.assertAgreesWithTrie(new HashByLengthPrefixMatcher(), 24, new MatcherAgreement.Shape(
+                50_000, random -> String.format("%08d", random.nextInt(100_000_000)).substring(0, 1 + random.nextInt(8)),
+                50_000, random -> String.format("%010d", random.nextInt(1_000_000_000))));
+    }
+}
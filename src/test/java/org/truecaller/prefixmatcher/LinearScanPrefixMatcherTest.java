@@ -0,0 +1,102 @@
+package org.truecaller.prefixmatcher;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the LinearScanPrefixMatcher implementation of the PrefixMatcher interface.
+ */
+class LinearScanPrefixMatcherTest {
+
+    private PrefixMatcher matcher;
+
+    private static final List<String> SAMPLE_PREFIXES = Arrays.asList(
+            "a", "app", "apple", "application",
+            "bat", "batter",
+            "tru", "true",
+            "foo"
+    );
+
+    @BeforeEach
+    void setUp() {
+        matcher = new LinearScanPrefixMatcher();
+        matcher.loadPrefixes(SAMPLE_PREFIXES);
+    }
+
+    @Test
+    @DisplayName("T1: Should return the longest matching prefix among multiple choices")
+    void testLongestMatchAmongMultiple() {
+        assertEquals("application", matcher.findLongestMatchingPrefix("application_server"));
+        assertEquals("true", matcher.findLongestMatchingPrefix("truecaller_id"));
+        assertEquals("batter", matcher.findLongestMatchingPrefix("batter_up_baseball"));
+        assertEquals("app", matcher.findLongestMatchingPrefix("applx_test"));
+    }
+
+    @Test
+    @DisplayName("T2: Should match prefixes shorter than the packed head word against short inputs")
+    void testShortInputs() {
+        assertEquals("a", matcher.findLongestMatchingPrefix("a"));
+        assertEquals("a", matcher.findLongestMatchingPrefix("ap"));
+        assertEquals("app", matcher.findLongestMatchingPrefix("app"));
+        assertEquals("tru", matcher.findLongestMatchingPrefix("truc"));
+    }
+
+    @Test
+    @DisplayName("E1: Should return empty string for no match or empty input")
+    void testNoMatch() {
+        assertEquals("", matcher.findLongestMatchingPrefix("zebra"));
+        assertEquals("", matcher.findLongestMatchingPrefix("fo"));
+        assertEquals("", matcher.findLongestMatchingPrefix(""));
+    }
+
+    @Test
+    @DisplayName("S1: Should handle an empty list of prefixes")
+    void testLoadEmptyPrefixes() {
+        PrefixMatcher emptyMatcher = new LinearScanPrefixMatcher();
+        emptyMatcher.loadPrefixes(Collections.emptyList());
+
+        assertEquals("", emptyMatcher.findLongestMatchingPrefix("test"));
+    }
+
+    @Test
+    @DisplayName("S2: Should merge prefixes across multiple loads and ignore duplicates")
+    void testIncrementalLoad() {
+        matcher.loadPrefixes(List.of("applepie", "apple", "zeb"));
+
+        assertEquals("applepie", matcher.findLongestMatchingPrefix("applepies"));
+        assertEquals("zeb", matcher.findLongestMatchingPrefix("zebra"));
+        assertEquals("batter", matcher.findLongestMatchingPrefix("batter"));
+    }
+
+    @Test
+    @DisplayName("U1: Should add prefixes to an already loaded matcher")
+    void testAddPrefix() {
+        matcher.addPrefix("applepie");
+        matcher.addPrefix("zebra");
+        matcher.addPrefix("apple");
+
+        assertEquals("applepie", matcher.findLongestMatchingPrefix("applepies"));
+        assertEquals("zebra", matcher.findLongestMatchingPrefix("zebras"));
+        assertEquals("apple", matcher.findLongestMatchingPrefix("applet"));
+    }
+
+    @Test
+    @DisplayName("U2: Should remove prefixes and report false for prefixes that are not loaded")
+    void testRemovePrefix() {
+        assertTrue(matcher.removePrefix("apple"));
+        assertTrue(matcher.removePrefix("a"));
+        assertFalse(matcher.removePrefix("apple"));
+        assertFalse(matcher.removePrefix("appl"));
+
+        assertEquals("app", matcher.findLongestMatchingPrefix("applepie"));
+        assertEquals("application", matcher.findLongestMatchingPrefix("application"));
+        assertEquals("", matcher.findLongestMatchingPrefix("antelope"));
+    }
+}
@@ -0,0 +1,134 @@
+package org.truecaller.prefixmatcher;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the MappedTriePrefixMatcher implementation of the PrefixMatcher interface.
+ */
+class MappedTriePrefixMatcherTest {
+
+    private PrefixMatcher matcher;
+    private Path snapshotFile;
+
+    private static final List<String> SAMPLE_PREFIXES = Arrays.asList(
+            "a", "app", "apple", "application",
+            "bat", "batter",
+            "tru", "true",
+            "foo"
+    );
+
+    @BeforeEach
+    void setUp() throws IOException {
+        snapshotFile = Files.createTempFile("prefixes", ".trie");
+        matcher = new MappedTriePrefixMatcher(snapshotFile);
+        matcher.loadPrefixes(SAMPLE_PREFIXES);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Test
+    @DisplayName("T1: Should return the longest matching prefix among multiple choices")
+    void testLongestMatchAmongMultiple() {
+        assertEquals("application", matcher.findLongestMatchingPrefix("application_server"));
+        assertEquals("true", matcher.findLongestMatchingPrefix("truecaller_id"));
+        assertEquals("batter", matcher.findLongestMatchingPrefix("batter_up_baseball"));
+        assertEquals("app", matcher.findLongestMatchingPrefix("applx_test"));
+    }
+
+    @Test
+    @DisplayName("T2: Should serve lookups from a snapshot reopened without rebuilding")
+    void testOpenCompiledSnapshot() throws IOException {
+        Path other = Files.createTempFile("routes", ".trie");
+        try {
+            MappedTriePrefixMatcher.compile(List.of("PRD-", "PRD-ALPHA", "Ж"), other);
+            PrefixMatcher reopened = MappedTriePrefixMatcher.open(other);
+
+            assertEquals("PRD-ALPHA", reopened.findLongestMatchingPrefix("PRD-ALPHA-EU"));
+            assertEquals("PRD-", reopened.findLongestMatchingPrefix("PRD-BETA"));
+            assertEquals("Ж", reopened.findLongestMatchingPrefix("ЖЖ"));
+            assertThrows(IllegalStateException.class, () -> reopened.loadPrefixes(List.of("x")));
+        } finally {
+            Files.deleteIfExists(other);
+        }
+    }
+
+    @Test
+    @DisplayName("E1: Should return empty string for no match or empty input")
+    void testNoMatch() {
+        assertEquals("", matcher.findLongestMatchingPrefix("zebra"));
+        assertEquals("", matcher.findLongestMatchingPrefix("fo"));
+        assertEquals("", matcher.findLongestMatchingPrefix(""));
+    }
+
+    @Test
+    @DisplayName("E2: Should reject files that are not trie snapshots")
+    void testRejectsForeignFile() throws IOException {
+        Files.writeString(snapshotFile, "not a snapshot, just some text");
+        assertThrows(IllegalArgumentException.class, () -> MappedTriePrefixMatcher.open(snapshotFile));
+        assertThrows(UncheckedIOException.class, () -> MappedTriePrefixMatcher.open(Path.of("does-not-exist.trie")));
+    }
+
+    @Test
+    @DisplayName("S1: Should handle an empty list of prefixes")
+    void testLoadEmptyPrefixes() throws IOException {
+        Path empty = Files.createTempFile("empty", ".trie");
+        try {
+            PrefixMatcher emptyMatcher = new MappedTriePrefixMatcher(empty);
+            emptyMatcher.loadPrefixes(Collections.emptyList());
+
+            assertEquals("", emptyMatcher.findLongestMatchingPrefix("test"));
+        } finally {
+            Files.deleteIfExists(empty);
+        }
+    }
+
+    @Test
+    @DisplayName("S2: Should reject a second load, since the mapped trie is immutable")
+    void testSecondLoadRejected() {
+        assertThrows(IllegalStateException.class, () -> matcher.loadPrefixes(SAMPLE_PREFIXES));
+    }
+
+    @Test
+    @DisplayName("L1: Should write the same minimal snapshot from a stream as compile does from a list")
+    void testStreamLoadMatchesCompile() throws IOException {
+        Path streamed = Files.createTempFile("streamed", ".trie");
+        try {
+            byte[] lines = String.join("\n", SAMPLE_PREFIXES).getBytes(StandardCharsets.UTF_8);
+            new MappedTriePrefixMatcher(streamed).loadPrefixes(new ByteArrayInputStream(lines));
+
+            assertArrayEquals(Files.readAllBytes(snapshotFile), Files.readAllBytes(streamed));
+        } finally {
+            Files.deleteIfExists(streamed);
+        }
+    }
+
+    @Test
+    @DisplayName("S3: Should agree with TriePrefixMatcher on a randomised prefix set with wide fan-out")
+    void testAgreesWithTrie() throws IOException {
+        Path large = Files.createTempFile("large", ".trie");
+        try {
+            MatcherAgreement.assertAgreesWithTrie(new MappedTriePrefixMatcher(large), 11,
+                    MatcherAgreement.Shape.of(MatcherAgreement.WIDE_FAN_OUT, 5_000, 10, 10_000, 14));
+        } finally {
+            Files.deleteIfExists(large);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.truecaller.prefixmatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Differential check shared by the engine tests: loads one randomised prefix set into the matcher under test
+ * and into TriePrefixMatcher, the reference engine, then asserts both answer every generated input alike.
+ */
+final class MatcherAgreement {
+
+    static final String[] LETTERS = {"a", "b", "c"};
+    static final String[] DIGITS = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
+    // One, two, three and four byte UTF-8 encodings.
+    static final String[] MIXED_SCRIPTS = {"a", "b", "é", "ж", "€", "🚀"};
+    // Mostly 'a' to 'c', with one draw in eight from 40 Cyrillic characters, so some nodes fan out past the sorted arrays.
+    static final String[] WIDE_FAN_OUT = wideFanOut();
+
+    private MatcherAgreement() {
+    }
+
+    /**
+     * How the prefix set and the inputs are generated.
+     */
+    record Shape(int prefixCount, Function<Random, String> prefix, int inputCount, Function<Random, String> input) {
+
+        /**
+         * Prefixes of 1 to maxPrefixLength symbols and inputs of exactly inputLength symbols, all from the alphabet.
+         */
+        static Shape of(String[] alphabet, int prefixCount, int maxPrefixLength, int inputCount, int inputLength) {
+            return new Shape(prefixCount, random -> randomString(random, alphabet, 1 + random.nextInt(maxPrefixLength)),
+                    inputCount, random -> randomString(random, alphabet, inputLength));
+        }
+    }
+
+    /**
+     * What was generated and checked, so a test can go on to check methods specific to its engine.
+     */
+    record Sample(List<String> prefixes, List<String> inputs, PrefixMatcher reference) {
+    }
+
+    /**
+     * Checks the matcher on 2,000 prefixes of up to 12 letters from a three-letter alphabet, which share long paths.
+     */
+    static Sample assertAgreesWithTrie(PrefixMatcher actual, long seed) {
+        return assertAgreesWithTrie(actual, seed, Shape.of(LETTERS, 2_000, 12, 5_000, 16));
+    }
+
+    /**
+     * Loads the generated prefixes into the empty matcher and compares the longest match, its length and
+     * every matching prefix with TriePrefixMatcher for each generated input.
+     */
+    static Sample assertAgreesWithTrie(PrefixMatcher actual, long seed, Shape shape) {
+        Random random = new Random(seed);
+        List<String> prefixes = new ArrayList<>(shape.prefixCount());
+        for (int i = 0; i < shape.prefixCount(); i++) {
+            prefixes.add(shape.prefix().apply(random));
+        }
+        PrefixMatcher reference = new TriePrefixMatcher();
+        reference.loadPrefixes(prefixes);
+        actual.loadPrefixes(prefixes);
+
+        List<String> inputs = new ArrayList<>(shape.inputCount());
+        for (int i = 0; i < shape.inputCount(); i++) {
+            String input = shape.input().apply(random);
+            inputs.add(input);
+            assertEquals(reference.findLongestMatchingPrefix(input), actual.findLongestMatchingPrefix(input), input);
+            assertEquals(reference.findLongestMatchLength(input), actual.findLongestMatchLength(input), input);
+            assertEquals(reference.findAllMatchingPrefixes(input), actual.findAllMatchingPrefixes(input), input);
+        }
+        return new Sample(prefixes, inputs, reference);
+    }
+
+    static String randomString(Random random, String[] alphabet, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet[random.nextInt(alphabet.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static String[] wideFanOut() {
+        List<String> symbols = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            symbols.add(String.valueOf((char) ('Ѐ' + i)));
+        }
+        // 280 letters against 40 wide characters.
+        for (int i = 0; i < 280; i++) {
+            symbols.add(LETTERS[i % LETTERS.length]);
+        }
+        return symbols.toArray(new String[0]);
+    }
+}
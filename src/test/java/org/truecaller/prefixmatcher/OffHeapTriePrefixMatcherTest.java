@@ -0,0 +1,95 @@
+package org.truecaller.prefixmatcher;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the OffHeapTriePrefixMatcher implementation of the PrefixMatcher interface.
+ */
+class OffHeapTriePrefixMatcherTest {
+
+    private OffHeapTriePrefixMatcher matcher;
+
+    private static final List<String> SAMPLE_PREFIXES = Arrays.asList(
+            "a", "app", "apple", "application",
+            "bat", "batter",
+            "tru", "true",
+            "foo"
+    );
+
+    @BeforeEach
+    void setUp() {
+        matcher = new OffHeapTriePrefixMatcher();
+        matcher.loadPrefixes(SAMPLE_PREFIXES);
+    }
+
+    @Test
+    @DisplayName("T1: Should return the longest matching prefix among multiple choices")
+    void testLongestMatchAmongMultiple() {
+        assertEquals("application", matcher.findLongestMatchingPrefix("application_server"));
+        assertEquals("true", matcher.findLongestMatchingPrefix("truecaller_id"));
+        assertEquals("batter", matcher.findLongestMatchingPrefix("batter_up_baseball"));
+        assertEquals("app", matcher.findLongestMatchingPrefix("applx_test"));
+    }
+
+    @Test
+    @DisplayName("E1: Should return empty string for no match or empty input")
+    void testNoMatch() {
+        assertEquals("", matcher.findLongestMatchingPrefix("zebra"));
+        assertEquals("", matcher.findLongestMatchingPrefix("fo"));
+        assertEquals("", matcher.findLongestMatchingPrefix(""));
+    }
+
+    @Test
+    @DisplayName("S1: Should handle an empty list of prefixes")
+    void testLoadEmptyPrefixes() {
+        PrefixMatcher emptyMatcher = new OffHeapTriePrefixMatcher();
+        emptyMatcher.loadPrefixes(Collections.emptyList());
+
+        assertEquals("", emptyMatcher.findLongestMatchingPrefix("test"));
+    }
+
+    @Test
+    @DisplayName("S2: Should reject a second load, since the encoded trie is immutable")
+    void testSecondLoadRejected() {
+        assertThrows(IllegalStateException.class, () -> matcher.loadPrefixes(SAMPLE_PREFIXES));
+    }
+
+    @Test
+    @DisplayName("S3: Should agree with TriePrefixMatcher on a randomised prefix set")
+    void testAgreesWithTrie() {
+        MatcherAgreement.assertAgreesWithTrie(new OffHeapTriePrefixMatcher(), 13);
+    }
+
+    @Test
+    @DisplayName("S4: Should encode prefixes streamed from UTF-8 input")
+    void testLoadFromStream() throws IOException {
+        PrefixMatcher streamed = new OffHeapTriePrefixMatcher();
+        streamed.loadPrefixes(new ByteArrayInputStream("PRD-\nPRD-ALPHA\r\nЖ\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("PRD-ALPHA", streamed.findLongestMatchingPrefix("PRD-ALPHA-EU"));
+        assertEquals("Ж", streamed.findLongestMatchingPrefix("ЖЖ"));
+        assertThrows(IllegalStateException.class,
+                () -> streamed.loadPrefixes(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    @DisplayName("L1: Should reject lookups after close")
+    void testClose() {
+        assertTrue(matcher.getOffHeapBytes() > 0);
+
+        matcher.close();
+
+        assertThrows(IllegalStateException.class, () -> matcher.findLongestMatchingPrefix("apple"));
+    }
+}
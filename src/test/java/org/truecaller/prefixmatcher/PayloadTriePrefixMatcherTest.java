@@ -0,0 +1,104 @@
+package org.truecaller.prefixmatcher;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the PayloadTriePrefixMatcher implementation of the PayloadPrefixMatcher interface.
+ */
+class PayloadTriePrefixMatcherTest {
+
+    private PayloadTriePrefixMatcher<String> matcher;
+
+    private static final Map<String, String> SAMPLE_ROUTES = Map.of(
+            "+1", "NANP",
+            "+1415", "US-CA-SF",
+            "+1415555", "US-CA-SF-TEST",
+            "+44", "UK",
+            "+4420", "UK-LONDON",
+            "+91", "IN"
+    );
+
+    @BeforeEach
+    void setUp() {
+        matcher = new PayloadTriePrefixMatcher<>();
+        matcher.loadPrefixes(SAMPLE_ROUTES);
+    }
+
+    @Test
+    @DisplayName("T1: Should return the value of the longest matching prefix")
+    void testLongestMatchValue() {
+        assertEquals("US-CA-SF-TEST", matcher.findLongestMatch("+14155550123"));
+        assertEquals("US-CA-SF", matcher.findLongestMatch("+14158880123"));
+        assertEquals("NANP", matcher.findLongestMatch("+12125550123"));
+        assertEquals("UK-LONDON", matcher.findLongestMatch("+442071234567"));
+        assertEquals("IN", matcher.findLongestMatch("+919876543210"));
+    }
+
+    @Test
+    @DisplayName("T2: Should match a region of a CharSequence in place")
+    void testRegionLookup() {
+        CharBuffer line = CharBuffer.wrap("id=7;to=+4420712345;from=+1415");
+
+        assertEquals("UK-LONDON", matcher.findLongestMatch(line, 8, 11));
+        assertEquals("UK", matcher.findLongestMatch(line, 8, 4));
+        assertEquals("US-CA-SF", matcher.findLongestMatch(line, 25, 5));
+        assertThrows(IndexOutOfBoundsException.class, () -> matcher.findLongestMatch(line, 25, 10));
+    }
+
+    @Test
+    @DisplayName("E1: Should return null for no match or empty input")
+    void testNoMatch() {
+        assertNull(matcher.findLongestMatch("+33123456"));
+        assertNull(matcher.findLongestMatch("+"));
+        assertNull(matcher.findLongestMatch(""));
+    }
+
+    @Test
+    @DisplayName("S1: Should handle an empty map of prefixes")
+    void testLoadEmptyPrefixes() {
+        PayloadPrefixMatcher<Integer> emptyMatcher = new PayloadTriePrefixMatcher<>();
+        emptyMatcher.loadPrefixes(Collections.emptyMap());
+
+        assertNull(emptyMatcher.findLongestMatch("test"));
+    }
+
+    @Test
+    @DisplayName("S2: Should reject a second load and null values")
+    void testInvalidLoads() {
+        assertThrows(IllegalStateException.class, () -> matcher.loadPrefixes(SAMPLE_ROUTES));
+
+        Map<String, String> withNull = new HashMap<>();
+        withNull.put("+1", null);
+        assertThrows(NullPointerException.class, () -> new PayloadTriePrefixMatcher<String>().loadPrefixes(withNull));
+    }
+
+    @Test
+    @DisplayName("S3: Should agree with TriePrefixMatcher followed by a map lookup")
+    void testAgreesWithTrie() {
+        Random random = new Random(21);
+        Map<String, Integer> routes = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            routes.put("+" + String.format("%06d", random.nextInt(1_000_000)).substring(0, 1 + random.nextInt(6)), i);
+        }
+        PrefixMatcher expected = new TriePrefixMatcher();
+        expected.loadPrefixes(List.copyOf(routes.keySet()));
+        PayloadTriePrefixMatcher<Integer> actual = new PayloadTriePrefixMatcher<>();
+        actual.loadPrefixes(routes);
+
+        for (int i = 0; i < 10_000; i++) {
+            String input = "+" + random.nextInt(1_000_000_000);
+            assertEquals(routes.get(expected.findLongestMatchingPrefix(input)), actual.findLongestMatch(input));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.truecaller.prefixmatcher;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the RadixTriePrefixMatcher implementation of the PrefixMatcher interface.
+ */
+class RadixTriePrefixMatcherTest {
+
+    private PrefixMatcher matcher;
+
+    private static final List<String> SAMPLE_PREFIXES = Arrays.asList(
+            "a", "app", "apple", "application",
+            "bat", "batter",
+            "tru", "true",
+            "foo"
+    );
+
+    @BeforeEach
+    void setUp() {
+        matcher = new RadixTriePrefixMatcher();
+        matcher.loadPrefixes(SAMPLE_PREFIXES);
+    }
+
+    @Test
+    @DisplayName("T1: Should return the longest matching prefix among multiple choices")
+    void testLongestMatchAmongMultiple() {
+        assertEquals("application", matcher.findLongestMatchingPrefix("application_server"));
+        assertEquals("true", matcher.findLongestMatchingPrefix("truecaller_id"));
+        assertEquals("batter", matcher.findLongestMatchingPrefix("batter_up_baseball"));
+    }
+
+    @Test
+    @DisplayName("T2: Should fall back to the last terminal when the input diverges inside an edge label")
+    void testDivergenceInsideEdge() {
+        // 'applx' diverges inside the 'le'/'lication' edges below 'app'
+        assertEquals("app", matcher.findLongestMatchingPrefix("applx_test"));
+        // 'batt' ends inside the 'ter' edge below 'bat'
+        assertEquals("bat", matcher.findLongestMatchingPrefix("batt"));
+    }
+
+    @Test
+    @DisplayName("T3: Should split edges correctly when a shorter prefix is inserted after a longer one")
+    void testEdgeSplitOnLaterInsert() {
+        PrefixMatcher routing = new RadixTriePrefixMatcher();
+        routing.loadPrefixes(List.of("PRD-ALPHA-EU-WEST-1", "PRD-ALPHA-EU-EAST-2", "PRD-", "PRD-ALPHA"));
+
+        assertEquals("PRD-ALPHA-EU-WEST-1", routing.findLongestMatchingPrefix("PRD-ALPHA-EU-WEST-1/orders"));
+        assertEquals("PRD-ALPHA", routing.findLongestMatchingPrefix("PRD-ALPHA-EU-NORTH"));
+        assertEquals("PRD-", routing.findLongestMatchingPrefix("PRD-BETA"));
+        assertEquals("", routing.findLongestMatchingPrefix("PRD"));
+    }
+
+    @Test
+    @DisplayName("T4: Should match regions of a String and of other CharSequences alike")
+    void testRegionsOfStringAndBuilder() {
+        String line = "id=applications;tag=batte";
+        StringBuilder builder = new StringBuilder(line);
+
+        for (CharSequence input : List.of(line, builder)) {
+            assertEquals("application".length(), matcher.findLongestMatchLength(input, 3, 12));
+            assertEquals("app".length(), matcher.findLongestMatchLength(input, 3, 4));
+            // 'batter' runs past the end of the region, so only 'bat' matches.
+            assertEquals("bat".length(), matcher.findLongestMatchLength(input, 20, 5));
+        }
+    }
+
+    @Test
+    @DisplayName("E1: Should return empty string for no match or empty input")
+    void testNoMatch() {
+        assertEquals("", matcher.findLongestMatchingPrefix("zebra"));
+        assertEquals("", matcher.findLongestMatchingPrefix("fo"));
+        assertEquals("", matcher.findLongestMatchingPrefix(""));
+    }
+
+    @Test
+    @DisplayName("S1: Should handle an empty list of prefixes")
+    void testLoadEmptyPrefixes() {
+        PrefixMatcher emptyMatcher = new RadixTriePrefixMatcher();
+        emptyMatcher.loadPrefixes(Collections.emptyList());
+
+        assertEquals("", emptyMatcher.findLongestMatchingPrefix("test"));
+    }
+
+    @Test
+    @DisplayName("S2: Should agree with TriePrefixMatcher on a randomised prefix set")
+    void testAgreesWithTrie() {
+        MatcherAgreement.assertAgreesWithTrie(new RadixTriePrefixMatcher(), 7);
+    }
+}
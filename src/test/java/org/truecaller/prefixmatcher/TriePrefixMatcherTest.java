@@ -3,12 +3,27 @@ package org.truecaller.prefixmatcher;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.truecaller.models.trie.TrieNode;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * Unit tests for the TriePrefixMatcher implementation of the PrefixMatcher interface.
@@ -73,6 +88,43 @@ class TriePrefixMatcherTest {
         assertEquals("app", matcher.findLongestMatchingPrefix("applx_test"));
     }
 
+    @Test
+    @DisplayName("T4: Should report the length of the longest match without materialising it")
+    void testLongestMatchLength() {
+        assertEquals(11, matcher.findLongestMatchLength("application_server"));
+        assertEquals(3, matcher.findLongestMatchLength("applx_test"));
+        assertEquals(0, matcher.findLongestMatchLength("zebra"));
+        assertEquals(0, matcher.findLongestMatchLength(""));
+    }
+
+    @Test
+    @DisplayName("T5: Should match a region of any CharSequence in place")
+    void testCharSequenceRegion() {
+        StringBuilder line = new StringBuilder("ts=1 host=truecaller_id path=/apple/pie");
+
+        assertEquals(4, matcher.findLongestMatchLength(line, 10, 13));
+        // The region ends before 'true' is complete, so only 'tru' fits.
+        assertEquals(3, matcher.findLongestMatchLength(line, 10, 3));
+        assertEquals(5, matcher.findLongestMatchLength(java.nio.CharBuffer.wrap(line), 30, 9));
+        assertEquals(0, matcher.findLongestMatchLength(line, 0, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> matcher.findLongestMatchLength(line, 30, 20));
+    }
+
+    @Test
+    @DisplayName("T6: Should report every matching prefix along the path, shortest first")
+    void testAllMatchingPrefixes() {
+        assertEquals(List.of("a", "app", "apple"), matcher.findAllMatchingPrefixes("applepie"));
+        assertEquals(List.of("tru", "true"), matcher.findAllMatchingPrefixes("truecaller"));
+        assertEquals(List.of(), matcher.findAllMatchingPrefixes("zebra"));
+
+        // One reusable sink: the lengths land in a caller-owned array, nothing is allocated per lookup.
+        int[] lengths = new int[8];
+        int[] count = {0};
+        StringBuilder line = new StringBuilder("path=/application/v2");
+        matcher.findAllMatchingPrefixes(line, 6, 14, length -> lengths[count[0]++] = length);
+        assertArrayEquals(new int[]{1, 3, 11}, java.util.Arrays.copyOf(lengths, count[0]));
+    }
+
     // --- 2. Edge Case Tests ---
 
     @Test
@@ -133,6 +185,263 @@ class TriePrefixMatcherTest {
         assertEquals("application", matcher.findLongestMatchingPrefix("application"));
     }
 
+    @Test
+    @DisplayName("S4: Should resolve children correctly once a node's fan-out outgrows the sorted arrays")
+    void testWideFanOut() {
+        PrefixMatcher wideMatcher = new TriePrefixMatcher();
+        List<String> prefixes = new ArrayList<>();
+        // 200 distinct first characters, including non-ASCII and the NUL character
+        for (char ch = 0; ch < 200; ch++) {
+            prefixes.add(ch + "x");
+        }
+        prefixes.add("Ж");
+        wideMatcher.loadPrefixes(prefixes);
+
+        for (char ch = 0; ch < 200; ch++) {
+            assertEquals(ch + "x", wideMatcher.findLongestMatchingPrefix(ch + "xyz"));
+            assertEquals("", wideMatcher.findLongestMatchingPrefix(ch + "y"));
+        }
+        assertEquals("Ж", wideMatcher.findLongestMatchingPrefix("ЖЖ"));
+        assertEquals("", wideMatcher.findLongestMatchingPrefix("З"));
+    }
+
+    @Test
+    @DisplayName("U1: Should add prefixes to an already loaded Trie")
+    void testAddPrefix() {
+        matcher.addPrefix("applepie");
+        matcher.addPrefix("zebra");
+
+        assertEquals("applepie", matcher.findLongestMatchingPrefix("applepies"));
+        assertEquals("zebra", matcher.findLongestMatchingPrefix("zebras"));
+        assertEquals("apple", matcher.findLongestMatchingPrefix("applet"));
+    }
+
+    @Test
+    @DisplayName("U2: Should remove prefixes and fall back to the next longest match")
+    void testRemovePrefix() {
+        assertTrue(matcher.removePrefix("apple"));
+        assertTrue(matcher.removePrefix("a"));
+
+        assertEquals("app", matcher.findLongestMatchingPrefix("applepie"));
+        assertEquals("application", matcher.findLongestMatchingPrefix("application"));
+        assertEquals("", matcher.findLongestMatchingPrefix("antelope"));
+    }
+
+    @Test
+    @DisplayName("U3: Should report false when removing a prefix that is not loaded")
+    void testRemoveMissingPrefix() {
+        assertFalse(matcher.removePrefix("appl"));
+        assertFalse(matcher.removePrefix("zebra"));
+        assertFalse(matcher.removePrefix("batters"));
+        assertEquals("apple", matcher.findLongestMatchingPrefix("apple"));
+    }
+
+    @Test
+    @DisplayName("U4: Should allow a pruned path to be added again")
+    void testRemoveThenAddAgain() {
+        assertTrue(matcher.removePrefix("application"));
+        assertEquals("app", matcher.findLongestMatchingPrefix("application"));
+
+        matcher.addPrefix("application");
+        assertEquals("application", matcher.findLongestMatchingPrefix("application"));
+    }
+
+    @Test
+    @DisplayName("U5: Should remove children from a wide fan-out node without losing its siblings")
+    void testRemoveFromWideFanOut() {
+        PrefixMatcher wideMatcher = new TriePrefixMatcher();
+        List<String> prefixes = new ArrayList<>();
+        for (char ch = 'A'; ch <= 'z'; ch++) {
+            prefixes.add(String.valueOf(ch));
+        }
+        wideMatcher.loadPrefixes(prefixes);
+
+        for (char ch = 'A'; ch <= 'z'; ch += 2) {
+            assertTrue(wideMatcher.removePrefix(String.valueOf(ch)));
+        }
+        for (char ch = 'A'; ch <= 'z'; ch++) {
+            String expected = (ch - 'A') % 2 == 0 ? "" : String.valueOf(ch);
+            assertEquals(expected, wideMatcher.findLongestMatchingPrefix(ch + "..."));
+        }
+    }
+
+    @Test
+    @DisplayName("L1: Should stream prefixes from UTF-8 input, skipping blank lines and any line ending")
+    void testLoadFromStream() throws IOException {
+        PrefixMatcher streamed = new TriePrefixMatcher();
+        byte[] input = "route-\r\nroute-eu\n\n\rЖук\rmünchen".getBytes(StandardCharsets.UTF_8);
+        streamed.loadPrefixes(new ByteArrayInputStream(input));
+
+        assertEquals("route-eu", streamed.findLongestMatchingPrefix("route-eu-west"));
+        assertEquals("route-", streamed.findLongestMatchingPrefix("route-us"));
+        assertEquals("Жук", streamed.findLongestMatchingPrefix("Жуки"));
+        assertEquals("münchen", streamed.findLongestMatchingPrefix("münchen-ost"));
+        assertEquals("", streamed.findLongestMatchingPrefix("\r"));
+    }
+
+    @Test
+    @DisplayName("L2: Should build the same Trie from a file parsed in parallel chunks")
+    void testLoadFromFileInChunks() throws IOException {
+        Random random = new Random(5);
+        List<String> prefixes = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder prefix = new StringBuilder();
+            for (int j = 1 + random.nextInt(10); j > 0; j--) {
+                // Multi-byte characters make chunk and buffer boundaries fall inside UTF-8 sequences.
+                prefix.append(random.nextBoolean() ? (char) ('a' + random.nextInt(4)) : (char) ('Ж' + random.nextInt(4)));
+            }
+            prefixes.add(prefix.toString());
+        }
+        Path file = Files.createTempFile("prefixes", ".txt");
+        try {
+            Files.write(file, prefixes, StandardCharsets.UTF_8);
+            PrefixMatcher expected = new TriePrefixMatcher();
+            expected.loadPrefixes(prefixes);
+            TriePrefixMatcher chunked = new TriePrefixMatcher();
+            chunked.loadPrefixes(file, 7);
+            PrefixMatcher sequential = new TriePrefixMatcher();
+            sequential.loadPrefixes(file);
+
+            for (String prefix : prefixes) {
+                String input = prefix + "Жa";
+                assertEquals(expected.findLongestMatchingPrefix(input), chunked.findLongestMatchingPrefix(input));
+                assertEquals(expected.findLongestMatchingPrefix(input), sequential.findLongestMatchingPrefix(input));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("L3: Should merge streamed prefixes into an already loaded Trie")
+    void testStreamIntoLoadedTrie() throws IOException {
+        matcher.loadPrefixes(new ByteArrayInputStream("applepie\nzebra\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("applepie", matcher.findLongestMatchingPrefix("applepies"));
+        assertEquals("zebra", matcher.findLongestMatchingPrefix("zebras"));
+        assertEquals("application", matcher.findLongestMatchingPrefix("application_server"));
+        assertEquals("tru", matcher.findLongestMatchingPrefix("truc"));
+    }
+
+    @Test
+    @DisplayName("L4: Should handle an empty prefix file")
+    void testLoadFromEmptyFile() throws IOException {
+        Path file = Files.createTempFile("empty", ".txt");
+        try {
+            TriePrefixMatcher emptyMatcher = new TriePrefixMatcher();
+            emptyMatcher.loadPrefixes(file, 4);
+
+            assertEquals("", emptyMatcher.findLongestMatchingPrefix("test"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("L5: Should merge a list of prefixes into an already loaded Trie, minimal or not")
+    void testListIntoLoadedTrie() {
+        matcher.loadPrefixes(List.of("applepie", "zebra", "apple"));
+
+        assertEquals("applepie", matcher.findLongestMatchingPrefix("applepies"));
+        assertEquals("zebra", matcher.findLongestMatchingPrefix("zebras"));
+        assertEquals("application", matcher.findLongestMatchingPrefix("application_server"));
+
+        // 'xab' and 'yab' share their 'ab' subtree; merging into one side must not change the other.
+        PrefixMatcher minimal = new TriePrefixMatcher(true);
+        minimal.loadPrefixes(List.of("xab", "yab"));
+        minimal.loadPrefixes(List.of("xabc", "yz"));
+
+        assertEquals("xabc", minimal.findLongestMatchingPrefix("xabcd"));
+        assertEquals("yab", minimal.findLongestMatchingPrefix("yabcd"));
+        assertEquals("yz", minimal.findLongestMatchingPrefix("yz"));
+    }
+
+    @Test
+    @DisplayName("P1: Should build the same Trie in parallel as sequentially, even with a skewed leading character")
+    void testParallelBuild() {
+        Random random = new Random(3);
+        List<String> prefixes = new ArrayList<>();
+        for (int i = 0; i < 60_000; i++) {
+            // Most prefixes share '+' and '+4', so the partitioning has to go several levels deep.
+            String head = i % 10 == 0 ? String.valueOf((char) ('0' + random.nextInt(10))) : i % 3 == 0 ? "+" : "+4";
+            prefixes.add(head + random.nextInt(1_000_000));
+        }
+        prefixes.add("+");
+        prefixes.add("+4");
+
+        TrieNode expected = new TrieNode();
+        prefixes.forEach(prefix -> TriePrefixMatcher.insert(expected, prefix));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertSameTrie(expected, TriePrefixMatcher.build(prefixes, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("M1: Should build a minimal Trie that matches like the plain one with far fewer nodes")
+    void testMinimalBuild() {
+        Random random = new Random(9);
+        List<String> prefixes = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            prefixes.add(String.valueOf(random.nextInt(10_000_000)));
+        }
+        PrefixMatcher plain = new TriePrefixMatcher();
+        plain.loadPrefixes(prefixes);
+        PrefixMatcher minimal = new TriePrefixMatcher(true);
+        minimal.loadPrefixes(prefixes);
+
+        for (int i = 0; i < 20_000; i++) {
+            String input = String.valueOf(random.nextInt(100_000_000));
+            assertEquals(plain.findLongestMatchingPrefix(input), minimal.findLongestMatchingPrefix(input));
+        }
+        TrieNode plainRoot = new TrieNode();
+        prefixes.forEach(prefix -> TriePrefixMatcher.insert(plainRoot, prefix));
+        TrieNode minimalRoot = SortedTrieBuilder.build(prefixes);
+        assertTrue(countNodes(minimalRoot, new IdentityHashMap<>()) * 2 < countNodes(plainRoot, new IdentityHashMap<>()));
+    }
+
+    @Test
+    @DisplayName("M2: Should keep shared suffix subtrees isolated when a minimal Trie is updated")
+    void testMinimalTrieUpdates() {
+        // 'xab' and 'yab' end in identical 'ab' subtrees, which the minimal build shares.
+        PrefixMatcher minimal = new TriePrefixMatcher(true);
+        minimal.loadPrefixes(List.of("xab", "yab", "x", "y"));
+
+        minimal.addPrefix("xabc");
+        assertEquals("xabc", minimal.findLongestMatchingPrefix("xabcd"));
+        assertEquals("yab", minimal.findLongestMatchingPrefix("yabcd"));
+
+        assertTrue(minimal.removePrefix("yab"));
+        assertEquals("xab", minimal.findLongestMatchingPrefix("xab"));
+        assertEquals("y", minimal.findLongestMatchingPrefix("yab"));
+    }
+
+    @Test
+    @DisplayName("M3: Should reject prefixes added out of order to the sorted builder")
+    void testSortedBuilderRejectsUnsortedInput() {
+        SortedTrieBuilder builder = new SortedTrieBuilder();
+        builder.add("b");
+        builder.add("b");
+        assertThrows(IllegalArgumentException.class, () -> builder.add("a"));
+    }
+
+    private static int countNodes(TrieNode node, Map<TrieNode, Boolean> seen) {
+        if (seen.put(node, Boolean.TRUE) != null) {
+            return 0;
+        }
+        int[] count = {1};
+        node.forEachChild((key, child) -> count[0] += countNodes(child, seen));
+        return count[0];
+    }
+
+    private static void assertSameTrie(TrieNode expected, TrieNode actual) {
+        assertEquals(expected.isEndOfPrefix(), actual.isEndOfPrefix());
+        assertEquals(expected.getChildCount(), actual.getChildCount());
+        expected.forEachChild((key, child) -> assertSameTrie(child, actual.getChild(key)));
+    }
+
     // --- 4. Concurrency (Simulated Read-Only Safety) Test ---
 
     @Test
@@ -167,4 +476,64 @@ class TriePrefixMatcherTest {
             assertEquals(EXPECTED_RESULT, result, "Concurrent reads produced an inconsistent result.");
         }
     }
+
+    @Test
+    @DisplayName("C2: Should keep lookups consistent while a writer adds and removes prefixes")
+    void testConcurrentUpdates() throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> unexpected = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                while (running.get()) {
+                    // 'true' is never touched by the writer, the 'tmp' prefixes come and go.
+                    String stable = matcher.findLongestMatchingPrefix("truecaller");
+                    String volatileMatch = matcher.findLongestMatchingPrefix("tmp-00042-x");
+                    if (!stable.equals("true") || !(volatileMatch.isEmpty() || volatileMatch.equals("tmp-00042"))) {
+                        unexpected.set(stable + "/" + volatileMatch);
+                    }
+                }
+            });
+            readers[i].start();
+        }
+
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 100; i++) {
+                matcher.addPrefix(String.format("tmp-%05d", i));
+            }
+            for (int i = 0; i < 100; i++) {
+                assertTrue(matcher.removePrefix(String.format("tmp-%05d", i)));
+            }
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(unexpected.get());
+        assertEquals("", matcher.findLongestMatchingPrefix("tmp-00042-x"));
+    }
+
+    @Test
+    @DisplayName("A1: Should not allocate on the heap while looking up match lengths")
+    void testLookupDoesNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        String[] inputs = {"application_server", "batter_up", "truecaller", "zebra", "applx", ""};
+        long matched = 0;
+        for (int i = 0; i < 10_000; i++) {
+            matched += matcher.findLongestMatchLength(inputs[i % inputs.length]);
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            matched += matcher.findLongestMatchLength(inputs[i % inputs.length]);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(matched > 0);
+        // Any per-call allocation would add at least 16 bytes per lookup; allow a little for the counter reads.
+        assertTrue(allocated < 1024, "Lookups allocated " + allocated + " bytes");
+    }
 }
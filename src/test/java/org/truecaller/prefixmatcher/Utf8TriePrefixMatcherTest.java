@@ -0,0 +1,103 @@
+package org.truecaller.prefixmatcher;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the Utf8TriePrefixMatcher implementation of the PrefixMatcher and BytePrefixMatcher interfaces.
+ */
+class Utf8TriePrefixMatcherTest {
+
+    private Utf8TriePrefixMatcher matcher;
+
+    private static final List<String> SAMPLE_PREFIXES = Arrays.asList(
+            "a", "app", "apple", "application",
+            "bat", "batter",
+            "tru", "true",
+            "foo",
+            "münchen", "Жук", "🚀go"
+    );
+
+    @BeforeEach
+    void setUp() {
+        matcher = new Utf8TriePrefixMatcher();
+        matcher.loadPrefixes(SAMPLE_PREFIXES);
+    }
+
+    @Test
+    @DisplayName("T1: Should return the longest matching prefix of a String, measured in chars")
+    void testStringLookups() {
+        assertEquals("application", matcher.findLongestMatchingPrefix("application_server"));
+        assertEquals("app", matcher.findLongestMatchingPrefix("applx_test"));
+        assertEquals("münchen", matcher.findLongestMatchingPrefix("münchen-ost"));
+        assertEquals("Жук", matcher.findLongestMatchingPrefix("Жуки"));
+        // A supplementary character counts as two chars in the String, four bytes in UTF-8.
+        assertEquals(4, matcher.findLongestMatchLength("🚀go!"));
+        assertEquals("", matcher.findLongestMatchingPrefix("🚁go"));
+    }
+
+    @Test
+    @DisplayName("B1: Should match a slice of a byte array and report the length in bytes")
+    void testByteArrayLookups() {
+        byte[] record = "key=münchen-ost;".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(8, matcher.findLongestMatchLength(record, 4, record.length - 4));
+        assertEquals(0, matcher.findLongestMatchLength(record, 0, record.length));
+        // A slice that ends inside the multi-byte 'ü' cannot match 'münchen'.
+        assertEquals(0, matcher.findLongestMatchLength(record, 4, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> matcher.findLongestMatchLength(record, 10, record.length));
+    }
+
+    @Test
+    @DisplayName("B2: Should match the remaining bytes of heap and direct buffers without moving their position")
+    void testByteBufferLookups() {
+        byte[] bytes = "xxbatter_up".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+        direct.position(2);
+
+        assertEquals(6, matcher.findLongestMatchLength(direct));
+        assertEquals(2, direct.position());
+        assertEquals(3, matcher.findLongestMatchLength(ByteBuffer.wrap(bytes, 2, 4)));
+    }
+
+    @Test
+    @DisplayName("E1: Should return empty string for no match or empty input")
+    void testNoMatch() {
+        assertEquals("", matcher.findLongestMatchingPrefix("zebra"));
+        assertEquals("", matcher.findLongestMatchingPrefix(""));
+        assertEquals(0, matcher.findLongestMatchLength(new byte[0], 0, 0));
+    }
+
+    @Test
+    @DisplayName("S1: Should handle an empty list of prefixes")
+    void testLoadEmptyPrefixes() {
+        Utf8TriePrefixMatcher emptyMatcher = new Utf8TriePrefixMatcher();
+        emptyMatcher.loadPrefixes(Collections.emptyList());
+
+        assertEquals("", emptyMatcher.findLongestMatchingPrefix("test"));
+        assertEquals(0, emptyMatcher.findLongestMatchLength(ByteBuffer.wrap(new byte[]{1, 2})));
+    }
+
+    @Test
+    @DisplayName("S2: Should agree with TriePrefixMatcher on String and UTF-8 input with mixed scripts")
+    void testAgreesWithTrie() {
+        Utf8TriePrefixMatcher actual = new Utf8TriePrefixMatcher();
+        MatcherAgreement.Sample sample = MatcherAgreement.assertAgreesWithTrie(actual, 19,
+                MatcherAgreement.Shape.of(MatcherAgreement.MIXED_SCRIPTS, 2_000, 8, 5_000, 12));
+
+        for (String input : sample.inputs()) {
+            String match = sample.reference().findLongestMatchingPrefix(input);
+            byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+            assertEquals(match.getBytes(StandardCharsets.UTF_8).length, actual.findLongestMatchLength(bytes, 0, bytes.length));
+        }
+    }
+}